@@ -0,0 +1,134 @@
+package com.ms_example.comentarios.load;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prueba de carga de lazo cerrado para comparar el modo de hilos de
+ * plataforma con el perfil virtual-threads.
+ *
+ * Contra una instancia ya levantada, sube la concurrencia por escalones y
+ * reporta throughput, p50 y p99 de cada uno. La concurrencia máxima
+ * sostenida es el último escalón con menos de 1% de errores y p99 dentro del
+ * objetivo. Se ejecuta una vez por modo con el mismo comando:
+ *
+ * mvn -Pjmh test-compile exec:exec
+ * -Djmh.main=com.ms_example.comentarios.load.ThreadingLoadBenchmark
+ * -Djmh.args="http://localhost:8082/api/comments/service-uuid/{uuid} $TOKEN"
+ *
+ * Argumentos: URL, token bearer (o "-"), escalones de concurrencia separados
+ * por comas (por defecto 50,100,200,400,800,1600), segundos por escalón (10) y
+ * objetivo de p99 en ms (500).
+ */
+public final class ThreadingLoadBenchmark {
+
+    private ThreadingLoadBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Uso: ThreadingLoadBenchmark <url> [token] [concurrencias] [segundos] [p99 ms]");
+            System.exit(1);
+        }
+        URI uri = URI.create(args[0]);
+        String token = args.length > 1 && !"-".equals(args[1]) ? args[1] : null;
+        int[] levels = Arrays.stream((args.length > 2 ? args[2] : "50,100,200,400,800,1600").split(","))
+                .mapToInt(Integer::parseInt).toArray();
+        Duration stepDuration = Duration.ofSeconds(args.length > 3 ? Long.parseLong(args[3]) : 10);
+        long p99TargetMillis = args.length > 4 ? Long.parseLong(args[4]) : 500;
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(30)).GET();
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        HttpRequest request = builder.build();
+
+        // Calentamiento para JIT y pool de conexiones
+        runStep(client, request, levels[0], Duration.ofSeconds(5));
+
+        System.out.printf("%12s %12s %10s %10s %10s%n", "concurrencia", "req/s", "p50 ms", "p99 ms", "errores");
+        int maxSustained = 0;
+        for (int concurrency : levels) {
+            StepResult result = runStep(client, request, concurrency, stepDuration);
+            System.out.printf("%12d %12.0f %10.1f %10.1f %9.2f%%%n", concurrency,
+                    result.requests() / (stepDuration.toMillis() / 1000.0), result.p50Millis(), result.p99Millis(),
+                    result.errorRate() * 100);
+            if (result.errorRate() < 0.01 && result.p99Millis() <= p99TargetMillis) {
+                maxSustained = concurrency;
+            }
+        }
+        System.out.printf("Concurrencia máxima sostenida (p99 <= %d ms, errores < 1%%): %d%n",
+                p99TargetMillis, maxSustained);
+    }
+
+    private static StepResult runStep(HttpClient client, HttpRequest request, int concurrency, Duration duration)
+            throws Exception {
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        long deadline = System.nanoTime() + duration.toNanos();
+        List<Future<long[]>> futures = new ArrayList<>(concurrency);
+        int[] errors = new int[concurrency];
+        for (int w = 0; w < concurrency; w++) {
+            int worker = w;
+            futures.add(workers.submit(() -> {
+                long[] latencies = new long[1024];
+                int count = 0;
+                while (System.nanoTime() < deadline) {
+                    long start = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() >= 400) {
+                            errors[worker]++;
+                        }
+                    } catch (Exception e) {
+                        errors[worker]++;
+                    }
+                    if (count == latencies.length) {
+                        latencies = Arrays.copyOf(latencies, count * 2);
+                    }
+                    latencies[count++] = System.nanoTime() - start;
+                }
+                return Arrays.copyOf(latencies, count);
+            }));
+        }
+
+        long[] all = new long[0];
+        for (Future<long[]> future : futures) {
+            long[] latencies = future.get();
+            int offset = all.length;
+            all = Arrays.copyOf(all, offset + latencies.length);
+            System.arraycopy(latencies, 0, all, offset, latencies.length);
+        }
+        workers.shutdown();
+        workers.awaitTermination(1, TimeUnit.MINUTES);
+
+        Arrays.sort(all);
+        int totalErrors = Arrays.stream(errors).sum();
+        return new StepResult(all.length, percentileMillis(all, 0.50), percentileMillis(all, 0.99),
+                all.length == 0 ? 1.0 : (double) totalErrors / all.length);
+    }
+
+    private static double percentileMillis(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return Double.NaN;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(index, 0)] / 1_000_000.0;
+    }
+
+    private record StepResult(long requests, double p50Millis, double p99Millis, double errorRate) {
+    }
+}
@@ -0,0 +1,177 @@
+package com.ms_example.comentarios.service;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import org.flywaydb.core.Flyway;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ms_example.comentarios.model.Comment;
+import com.ms_example.comentarios.repository.ServiceUuidBackfill;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Prueba de carga de inserciones concurrentes de comentarios: una transacción
+ * por comentario contra group commit (GroupCommitter).
+ *
+ * 64 hilos insertan sin pausa, como las peticiones de una venta relámpago,
+ * sobre H2 en archivo con el esquema de las migraciones y un pool del tamaño
+ * configurado en application.yml. Cada escritura inserta el comentario y su
+ * evento del outbox. WRITE_DELAY=0 guarda el archivo en cada commit, como un
+ * almacenamiento durable.
+ *
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="GroupCommitBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(64)
+@Fork(1)
+public class GroupCommitBenchmark {
+
+    private static final String INSERT_COMMENT = "INSERT INTO comments "
+            + "(id, service_uuid, service_id_hash, profile_id, rating, content, created_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_OUTBOX = "INSERT INTO comment_outbox "
+            + "(id, comment_id, service_uuid, payload, created_at, attempts) VALUES (?, ?, ?, ?, ?, 0)";
+
+    @Param({ "DIRECT", "GROUP" })
+    public String mode;
+
+    private Path directory;
+    private HikariDataSource dataSource;
+    private GroupCommitter<Comment, Comment> groupCommitter;
+    private final AtomicLong ids = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("group-commit-benchmark");
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl("jdbc:h2:file:" + directory.resolve("comments") + ";WRITE_DELAY=0");
+        config.setUsername("admin");
+        config.setPassword("admin123");
+        config.setMaximumPoolSize(10);
+        config.setMinimumIdle(10);
+        config.setConnectionTimeout(5000);
+        dataSource = new HikariDataSource(config);
+        Flyway.configure()
+                .dataSource(dataSource)
+                .javaMigrations(new ServiceUuidBackfill())
+                .load()
+                .migrate();
+        if ("GROUP".equals(mode)) {
+            groupCommitter = new GroupCommitter<>("benchmark-group-commit", 200, Duration.ofMillis(2), 10_000,
+                    this::write, new SimpleMeterRegistry());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (groupCommitter != null) {
+            groupCommitter.close();
+        }
+        dataSource.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public Comment createComment() {
+        Comment comment = comment();
+        if (groupCommitter == null) {
+            return write(List.of(comment)).get(0);
+        }
+        CompletableFuture<Comment> saved = groupCommitter.submit(comment);
+        return saved != null ? saved.join() : write(List.of(comment)).get(0);
+    }
+
+    private Comment comment() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        UUID serviceUuid = new UUID(0, random.nextInt(1_000));
+        Comment comment = new Comment();
+        comment.setServiceUuid(serviceUuid);
+        comment.setServiceIdHash(Math.abs((long) serviceUuid.hashCode()));
+        comment.setProfileId((long) random.nextInt(10_000));
+        comment.setRating(BigDecimal.valueOf(10 + random.nextInt(41), 1));
+        comment.setContent("Comentario de la prueba de carga, el servicio fue puntual y muy amable");
+        comment.setCreatedAt(LocalDateTime.now());
+        return comment;
+    }
+
+    // Lo mismo que hace CommentService en una transacción: el comentario y su evento
+    private List<Comment> write(List<Comment> comments) {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement insertComment = connection.prepareStatement(INSERT_COMMENT);
+                    PreparedStatement insertOutbox = connection.prepareStatement(INSERT_OUTBOX)) {
+                List<Comment> saved = new ArrayList<>(comments.size());
+                for (Comment comment : comments) {
+                    comment.setId(ids.incrementAndGet());
+                    Timestamp createdAt = Timestamp.valueOf(comment.getCreatedAt());
+                    insertComment.setLong(1, comment.getId());
+                    insertComment.setObject(2, comment.getServiceUuid());
+                    insertComment.setLong(3, comment.getServiceIdHash());
+                    insertComment.setLong(4, comment.getProfileId());
+                    insertComment.setBigDecimal(5, comment.getRating());
+                    insertComment.setString(6, comment.getContent());
+                    insertComment.setTimestamp(7, createdAt);
+                    insertComment.addBatch();
+                    insertOutbox.setLong(1, comment.getId());
+                    insertOutbox.setLong(2, comment.getId());
+                    insertOutbox.setObject(3, comment.getServiceUuid());
+                    insertOutbox.setString(4, comment.getContent());
+                    insertOutbox.setTimestamp(5, createdAt);
+                    insertOutbox.addBatch();
+                    saved.add(comment);
+                }
+                insertComment.executeBatch();
+                insertOutbox.executeBatch();
+                connection.commit();
+                return saved;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
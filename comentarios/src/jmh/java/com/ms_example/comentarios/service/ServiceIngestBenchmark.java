@@ -0,0 +1,138 @@
+package com.ms_example.comentarios.service;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ms_example.comentarios.dto.ServiceResponseDTO;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Benchmarks del camino de ingesta de service-response-topic: detección y
+ * decodificación del payload, deserialización y el consumidor completo
+ * aplicando un lote al catálogo.
+ *
+ * Se ejecuta con el perfil jmh (ver pom.xml); el perfilador de GC reporta la
+ * tasa de asignación (gc.alloc.rate.norm) de cada benchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServiceIngestBenchmark {
+
+    private static final int BATCH_SIZE = 500;
+    private static final int DISTINCT_SERVICES = 10_000;
+
+    /**
+     * JSON: payload JSON directo. QUOTED_BASE64: JSON en Base64 entre comillas,
+     * como lo publica marketplace. MALFORMED: ni JSON ni Base64 válido
+     */
+    @Param({ "JSON", "QUOTED_BASE64", "MALFORMED" })
+    public String payloadType;
+
+    private ServiceKafkaConsumer consumer;
+    private Consumer<Message<List<byte[]>>> serviceResponse;
+    private List<byte[]> payloads;
+    private Message<List<byte[]>> batch;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        // Misma configuración relevante que el ObjectMapper de Spring Boot
+        ObjectMapper objectMapper = new ObjectMapper()
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        ServiceCatalog catalog = new ServiceCatalog(DISTINCT_SERVICES * 2L, Duration.ofHours(1),
+                new SimpleMeterRegistry());
+        consumer = new ServiceKafkaConsumer(new KafkaMessagingService(null, new SimpleMeterRegistry(),
+                "microservicio-comentarios", Duration.ofSeconds(10), 100_000, Duration.ofMillis(100)), objectMapper, catalog,
+                new SimpleMeterRegistry());
+        serviceResponse = consumer.serviceResponse();
+
+        payloads = new ArrayList<>(DISTINCT_SERVICES);
+        for (int i = 0; i < DISTINCT_SERVICES; i++) {
+            payloads.add(payload(objectMapper, i));
+        }
+        batch = MessageBuilder.withPayload(payloads.subList(0, BATCH_SIZE)).build();
+    }
+
+    @Benchmark
+    public ServicePayloadDecoder.JsonView locateJson() {
+        return ServicePayloadDecoder.locateJson(nextPayload());
+    }
+
+    @Benchmark
+    public ServiceResponseDTO deserialize() {
+        return consumer.deserialize(nextPayload());
+    }
+
+    /**
+     * Lote completo de BATCH_SIZE mensajes a través de serviceResponse()
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void consumeBatch() {
+        serviceResponse.accept(batch);
+    }
+
+    private byte[] nextPayload() {
+        byte[] payload = payloads.get(next);
+        next = (next + 1) % DISTINCT_SERVICES;
+        return payload;
+    }
+
+    private byte[] payload(ObjectMapper objectMapper, int index) throws Exception {
+        if ("MALFORMED".equals(payloadType)) {
+            return ("servicio-" + index + "-sin-formato").getBytes(StandardCharsets.UTF_8);
+        }
+        // Mismos campos que publica marketplace
+        Map<String, Object> service = new LinkedHashMap<>();
+        service.put("serviceId", new UUID(0, index).toString());
+        service.put("title", "Servicio " + index);
+        service.put("description", "Descripción del servicio de prueba número " + index);
+        service.put("price", BigDecimal.valueOf(10_000 + index, 2));
+        service.put("averageRating", 4.5);
+        service.put("eventType", "UPDATED");
+        service.put("categoryId", new UUID(1, index % 20).toString());
+        service.put("categoryName", "Categoría " + (index % 20));
+        service.put("countryId", new UUID(2, index % 5).toString());
+        service.put("countryName", "Colombia");
+        service.put("countryCode", "CO");
+        service.put("isActive", true);
+
+        byte[] json = objectMapper.writeValueAsBytes(service);
+        if ("JSON".equals(payloadType)) {
+            return json;
+        }
+        return ("\"" + Base64.getEncoder().encodeToString(json) + "\"").getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,159 @@
+package com.ms_example.comentarios.service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.ms_example.comentarios.config.MessagingConfig;
+import com.ms_example.comentarios.dto.CommentResponseDTO;
+import com.ms_example.comentarios.dto.ServiceResponseDTO;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Compara JSON y Smile en los eventos de Kafka: serialización y
+ * deserialización de comments-response con el mismo convertidor que usa el
+ * binding, y deserialización de service-response-topic en el consumidor.
+ *
+ * El tamaño promedio de cada payload se imprime al iniciar cada trial; el
+ * perfilador de GC reporta la asignación por operación.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WireFormatBenchmark {
+
+    private static final int DISTINCT_MESSAGES = 1_000;
+
+    @Param({ "JSON", "SMILE" })
+    public String format;
+
+    private MappingJackson2MessageConverter converter;
+    private MessageHeaders headers;
+    private ServiceKafkaConsumer consumer;
+    private List<CommentResponseDTO> comments;
+    private List<Message<?>> commentMessages;
+    private List<byte[]> servicePayloads;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        // Misma configuración relevante que el ObjectMapper de Spring Boot
+        ObjectMapper objectMapper = new ObjectMapper()
+                .findAndRegisterModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        MimeType contentType;
+        if ("SMILE".equals(format)) {
+            converter = (MappingJackson2MessageConverter) new MessagingConfig().smileMessageConverter(objectMapper);
+            contentType = MessagingConfig.SMILE;
+        } else {
+            converter = new MappingJackson2MessageConverter(MimeTypeUtils.APPLICATION_JSON);
+            converter.setObjectMapper(objectMapper);
+            contentType = MimeTypeUtils.APPLICATION_JSON;
+        }
+        headers = new MessageHeaders(Map.of(MessageHeaders.CONTENT_TYPE, contentType));
+        consumer = new ServiceKafkaConsumer(new KafkaMessagingService(null, new SimpleMeterRegistry(),
+                "microservicio-comentarios", Duration.ofSeconds(10), 100_000, Duration.ofMillis(100)), objectMapper,
+                new ServiceCatalog(DISTINCT_MESSAGES * 2L, Duration.ofHours(1), new SimpleMeterRegistry()),
+                new SimpleMeterRegistry());
+
+        comments = new ArrayList<>(DISTINCT_MESSAGES);
+        commentMessages = new ArrayList<>(DISTINCT_MESSAGES);
+        servicePayloads = new ArrayList<>(DISTINCT_MESSAGES);
+        long commentBytes = 0;
+        long serviceBytes = 0;
+        for (int i = 0; i < DISTINCT_MESSAGES; i++) {
+            CommentResponseDTO comment = comment(i);
+            Message<?> message = converter.toMessage(comment, headers);
+            comments.add(comment);
+            commentMessages.add(message);
+            commentBytes += ((byte[]) message.getPayload()).length;
+
+            byte[] service = (byte[]) converter.toMessage(service(i), headers).getPayload();
+            servicePayloads.add(service);
+            serviceBytes += service.length;
+        }
+        System.out.printf("%n%s: comments-response %d bytes, service-response %d bytes (promedio)%n",
+                format, commentBytes / DISTINCT_MESSAGES, serviceBytes / DISTINCT_MESSAGES);
+    }
+
+    @Benchmark
+    public Object serializeComment() {
+        return converter.toMessage(comments.get(nextIndex()), headers).getPayload();
+    }
+
+    @Benchmark
+    public Object deserializeComment() {
+        return converter.fromMessage(commentMessages.get(nextIndex()), CommentResponseDTO.class);
+    }
+
+    @Benchmark
+    public ServiceResponseDTO deserializeService() {
+        return consumer.deserialize(servicePayloads.get(nextIndex()));
+    }
+
+    private int nextIndex() {
+        int index = next;
+        next = (next + 1) % DISTINCT_MESSAGES;
+        return index;
+    }
+
+    private static CommentResponseDTO comment(int index) {
+        UUID serviceUuid = new UUID(0, index % 100);
+        return CommentResponseDTO.builder()
+                .commentId(1_000_000L + index)
+                .serviceUuid(serviceUuid.toString())
+                .serviceIdHash(Math.abs((long) serviceUuid.hashCode()))
+                .profileId((long) index % 500)
+                .rating(BigDecimal.valueOf(10 + index % 41, 1))
+                .content("Comentario de prueba número " + index + ", el servicio fue puntual y muy amable")
+                .createdAt(LocalDateTime.of(2025, 1, 1, 12, 0).plusSeconds(index))
+                .build();
+    }
+
+    // Mismos campos que publica marketplace
+    private static ServiceResponseDTO service(int index) {
+        ServiceResponseDTO service = new ServiceResponseDTO();
+        service.setServiceId(new UUID(0, index).toString());
+        service.setTitle("Servicio " + index);
+        service.setDescription("Descripción del servicio de prueba número " + index);
+        service.setPrice(BigDecimal.valueOf(10_000 + index, 2));
+        service.setAverageRating(4.5);
+        service.setEventType("UPDATED");
+        service.setCategoryName("Categoría " + (index % 20));
+        service.setCountryName("Colombia");
+        service.setCountryCode("CO");
+        service.setIsActive(true);
+        return service;
+    }
+}
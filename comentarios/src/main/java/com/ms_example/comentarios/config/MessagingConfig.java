@@ -0,0 +1,37 @@
+package com.ms_example.comentarios.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.util.MimeType;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+/**
+ * Conversión de mensajes de Spring Cloud Stream.
+ *
+ * Agrega Smile (JSON binario de Jackson) como formato opcional: un binding
+ * con content-type application/x-jackson-smile serializa el payload en Smile
+ * y lo publica con ese contentType, para que el consumidor elija el
+ * deserializador. Los bindings con application/json no cambian.
+ */
+@Configuration
+public class MessagingConfig {
+
+    public static final MimeType SMILE = MimeType.valueOf("application/x-jackson-smile");
+
+    /**
+     * Usa la misma configuración y módulos que el ObjectMapper de la aplicación
+     * (fechas ISO, propiedades desconocidas, etc.)
+     */
+    @Bean
+    public MessageConverter smileMessageConverter(ObjectMapper objectMapper) {
+        MappingJackson2MessageConverter converter = new MappingJackson2MessageConverter(SMILE);
+        converter.setObjectMapper(objectMapper.copyWith(new SmileFactory()));
+        // Solo aplica a mensajes que declaran Smile
+        converter.setStrictContentTypeMatch(true);
+        return converter;
+    }
+}
@@ -0,0 +1,61 @@
+package com.ms_example.comentarios.config;
+
+import java.time.Duration;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Detecta hilos virtuales que quedan fijados a su hilo portador (por ejemplo,
+ * bloqueando dentro de un bloque synchronized o de código nativo) más tiempo
+ * que el umbral configurado.
+ *
+ * Escucha el evento JFR jdk.VirtualThreadPinned en el propio proceso, lo
+ * registra con el frame que lo provocó y lo cuenta en
+ * comments.threads.pinned.
+ */
+@Slf4j
+public class VirtualThreadPinningMonitor implements AutoCloseable {
+
+    static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    private final RecordingStream stream;
+
+    public VirtualThreadPinningMonitor(MeterRegistry meterRegistry, Duration threshold) {
+        Counter pinned = Counter.builder("comments.threads.pinned")
+                .description("Hilos virtuales fijados a su portador más tiempo que el umbral")
+                .register(meterRegistry);
+
+        this.stream = new RecordingStream();
+        stream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        stream.onEvent(PINNED_EVENT, event -> {
+            pinned.increment();
+            log.warn("Hilo virtual fijado durante {} ms en {}", event.getDuration().toMillis(), origin(event));
+        });
+        stream.startAsync();
+    }
+
+    private static String origin(RecordedEvent event) {
+        if (event.getStackTrace() == null || event.getStackTrace().getFrames().isEmpty()) {
+            return "origen desconocido";
+        }
+        // El primer frame de la aplicación suele ser el que explica el pinning
+        for (RecordedFrame frame : event.getStackTrace().getFrames()) {
+            String type = frame.getMethod().getType().getName();
+            if (type.startsWith("com.ms_example.")) {
+                return type + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+            }
+        }
+        RecordedFrame top = event.getStackTrace().getFrames().get(0);
+        return top.getMethod().getType().getName() + "." + top.getMethod().getName();
+    }
+
+    @Override
+    public void close() {
+        stream.close();
+    }
+}
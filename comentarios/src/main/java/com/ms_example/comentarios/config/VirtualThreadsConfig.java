@@ -0,0 +1,48 @@
+package com.ms_example.comentarios.config;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.cloud.stream.config.ListenerContainerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.kafka.listener.AbstractMessageListenerContainer;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Modo de hilos virtuales (perfil virtual-threads, requiere Java 21).
+ *
+ * Con spring.threads.virtual.enabled Spring Boot ya ejecuta Tomcat y las
+ * tareas @Scheduled (relay del outbox, snapshot del catálogo) en hilos
+ * virtuales; aquí se extiende a los contenedores de Kafka creados por el
+ * binder y se registra el detector de pinning.
+ */
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+@Slf4j
+public class VirtualThreadsConfig {
+
+    /**
+     * Los consumidores de los bindings de Kafka corren en hilos virtuales
+     */
+    @Bean
+    public ListenerContainerCustomizer<AbstractMessageListenerContainer<?, ?>> virtualThreadListenerContainerCustomizer() {
+        return (container, destinationName, group) -> {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("kafka-" + destinationName + "-");
+            executor.setVirtualThreads(true);
+            container.getContainerProperties().setListenerTaskExecutor(executor);
+            log.info("Contenedor Kafka de {} configurado con hilos virtuales", destinationName);
+        };
+    }
+
+    @Bean(destroyMethod = "close")
+    public VirtualThreadPinningMonitor virtualThreadPinningMonitor(MeterRegistry meterRegistry,
+            @Value("${comments.threads.pinning-threshold:20ms}") Duration threshold) {
+        return new VirtualThreadPinningMonitor(meterRegistry, threshold);
+    }
+}
@@ -2,13 +2,22 @@ package com.ms_example.comentarios.controller;
 
 import java.util.List;
 import java.util.UUID;
+import java.util.function.BiFunction;
 
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
+import com.ms_example.comentarios.dto.CommentCursor;
+import com.ms_example.comentarios.dto.CommentPage;
+import com.ms_example.comentarios.dto.CommentSort;
+import com.ms_example.comentarios.dto.CommentView;
 import com.ms_example.comentarios.model.Comment;
 
 import com.ms_example.comentarios.service.CommentService;
+import com.ms_example.comentarios.service.ServiceVersions;
 
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -21,38 +30,75 @@ import org.springframework.web.bind.annotation.PutMapping;
 @RequestMapping("/api/comments")
 public class CommentController {
 
+    // Header con el cursor de la siguiente página en los listados paginados
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final String DEFAULT_PAGE_SIZE = "20";
+    private static final int MAX_PAGE_SIZE = 100;
+
     private final CommentService commentService;
+    private final ServiceVersions serviceVersions;
 
-    public CommentController(CommentService commentService) {
+    public CommentController(CommentService commentService, ServiceVersions serviceVersions) {
         this.commentService = commentService;
+        this.serviceVersions = serviceVersions;
     }
 
     @GetMapping
-    public List<Comment> getAllComments() {
+    public List<CommentView> getAllComments() {
         return commentService.getAllComments();
     }
 
     @GetMapping("/{id}")
-    public Comment getCommentById(@PathVariable Long id) {
+    public CommentView getCommentById(@PathVariable Long id) {
         return commentService.getCommentsById(id);
     }
 
     @GetMapping("/service-id/{id}")
-    public List<Comment> getCommentByServiceId(@PathVariable Long id) {
-        return commentService.getCommentByServiceId(id);
+    public ResponseEntity<List<CommentView>> getCommentByServiceId(@PathVariable Long id,
+            @RequestParam(defaultValue = DEFAULT_PAGE_SIZE) int limit,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) String sort) {
+        return page(limit, after, sort, null,
+                (commentSort, cursor) -> commentService.getCommentPageByServiceId(id, commentSort, cursor, limit));
     }
 
     @GetMapping("/service-uuid/{serviceUuid}")
-    public List<Comment> getCommentByServiceUuid(@PathVariable String serviceUuid) {
-        // Convertir UUID a Long usando el mismo método que al guardar
-        UUID uuid = UUID.fromString(serviceUuid);
-        Long serviceLongId = Math.abs((long) uuid.hashCode());
-        return commentService.getCommentByServiceId(serviceLongId);
+    public ResponseEntity<List<CommentView>> getCommentByServiceUuid(@PathVariable UUID serviceUuid,
+            @RequestParam(defaultValue = DEFAULT_PAGE_SIZE) int limit,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) String sort,
+            WebRequest request) {
+        // Si el cliente ya tiene esta versión se responde 304 sin consultar la base
+        String eTag = ETags.of(serviceVersions.epoch(), serviceVersions.version(serviceUuid), limit, after, sort);
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+        return page(limit, after, sort, eTag,
+                (commentSort, cursor) -> commentService.getCommentPageByServiceUuid(serviceUuid, commentSort, cursor,
+                        limit));
+    }
+
+    /**
+     * Busca comentarios por texto (análisis en español), ordenados por
+     * relevancia
+     */
+    @GetMapping("/search")
+    public ResponseEntity<List<CommentView>> searchComments(@RequestParam String q,
+            @RequestParam(required = false) UUID serviceUuid,
+            @RequestParam(defaultValue = DEFAULT_PAGE_SIZE) int limit) {
+        if (q.isBlank() || limit < 1 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(commentService.searchComments(q, serviceUuid, limit));
     }
 
     @GetMapping("/profile-id/{id}")
-    public List<Comment> getCommentByProfileId(@PathVariable Long id) {
-        return commentService.getCommentByProfileId(id);
+    public ResponseEntity<List<CommentView>> getCommentByProfileId(@PathVariable Long id,
+            @RequestParam(defaultValue = DEFAULT_PAGE_SIZE) int limit,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) String sort) {
+        return page(limit, after, sort, null,
+                (commentSort, cursor) -> commentService.getCommentPageByProfileId(id, commentSort, cursor, limit));
     }
 
     @PostMapping
@@ -62,9 +108,7 @@ public class CommentController {
 
     @PutMapping("/update/{id}")
     public Comment updateComment(@PathVariable Long id, @RequestBody Comment comment) {
-        if (commentService.getCommentsById(id) == null) {
-            return null;
-        }
+        // updateComment devuelve null si el comentario no existe
         return commentService.updateComment(id, comment);
     }
 
@@ -77,4 +121,31 @@ public class CommentController {
         return false;
     }
 
+    /**
+     * Resuelve un listado paginado por keyset. El cursor de la siguiente página
+     * se devuelve en el header X-Next-Cursor y se envía de vuelta en el
+     * parámetro after. El ETag es opcional.
+     */
+    private ResponseEntity<List<CommentView>> page(int limit, String after, String sort, String eTag,
+            BiFunction<CommentSort, CommentCursor, CommentPage> loader) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        CommentPage page;
+        try {
+            CommentSort commentSort = CommentSort.fromParam(sort);
+            page = loader.apply(commentSort, CommentCursor.decode(after, commentSort));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (eTag != null) {
+            response.eTag(eTag);
+        }
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getItems());
+    }
+
 }
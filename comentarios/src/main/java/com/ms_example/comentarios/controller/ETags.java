@@ -0,0 +1,19 @@
+package com.ms_example.comentarios.controller;
+
+import java.util.Arrays;
+
+/**
+ * ETags fuertes a partir de versiones en memoria: época del proceso, versión
+ * del recurso y hash de los parámetros de la consulta (límite, cursor,
+ * orden), para que cada página tenga su propio ETag
+ */
+final class ETags {
+
+    private ETags() {
+    }
+
+    static String of(String epoch, long version, Object... params) {
+        return "\"" + epoch + "-" + Long.toHexString(version) + "-" + Integer.toHexString(Arrays.hashCode(params))
+                + "\"";
+    }
+}
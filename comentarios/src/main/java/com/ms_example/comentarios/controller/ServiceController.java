@@ -1,18 +1,29 @@
 package com.ms_example.comentarios.controller;
 
+import com.ms_example.comentarios.dto.BatchCommentResponseDTO;
 import com.ms_example.comentarios.dto.CreateCommentDTO;
+import com.ms_example.comentarios.dto.RatingSummaryDTO;
 import com.ms_example.comentarios.dto.ServiceResponseDTO;
+import com.ms_example.comentarios.dto.TopServiceDTO;
 import com.ms_example.comentarios.model.Comment;
 import com.ms_example.comentarios.service.CommentService;
-import com.ms_example.comentarios.service.ServiceKafkaConsumer;
+import com.ms_example.comentarios.service.RatingSummaryService;
+import com.ms_example.comentarios.service.ServiceCatalog;
+import com.ms_example.comentarios.service.ServiceLeaderboard;
+import com.ms_example.comentarios.service.ServiceLookupService;
+import com.ms_example.comentarios.service.ServiceVersions;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * Controlador REST para acceder a los servicios recibidos desde Kafka
@@ -22,10 +33,27 @@ import java.util.UUID;
 @Slf4j
 public class ServiceController {
 
-    private final CommentService commentService;
+    private static final int MAX_TOP_SERVICES = 100;
 
-    public ServiceController(CommentService commentService) {
+    private final CommentService commentService;
+    private final RatingSummaryService ratingSummaryService;
+    private final ServiceCatalog serviceCatalog;
+    private final ServiceLookupService serviceLookupService;
+    private final ServiceVersions serviceVersions;
+    private final ServiceLeaderboard serviceLeaderboard;
+    private final Executor taskExecutor;
+
+    public ServiceController(CommentService commentService, RatingSummaryService ratingSummaryService,
+            ServiceCatalog serviceCatalog, ServiceLookupService serviceLookupService,
+            ServiceVersions serviceVersions, ServiceLeaderboard serviceLeaderboard,
+            @Qualifier("applicationTaskExecutor") Executor taskExecutor) {
         this.commentService = commentService;
+        this.ratingSummaryService = ratingSummaryService;
+        this.serviceCatalog = serviceCatalog;
+        this.serviceLookupService = serviceLookupService;
+        this.serviceVersions = serviceVersions;
+        this.serviceLeaderboard = serviceLeaderboard;
+        this.taskExecutor = taskExecutor;
     }
 
     /**
@@ -34,11 +62,36 @@ public class ServiceController {
      * @return Lista de todos los servicios
      */
     @GetMapping
-    public ResponseEntity<List<ServiceResponseDTO>> getAllServices() {
+    public ResponseEntity<List<ServiceResponseDTO>> getAllServices(WebRequest request) {
         log.info("GET /api/services - Obteniendo todos los servicios");
-        List<ServiceResponseDTO> services = ServiceKafkaConsumer.getAllAvailableServices();
+        ServiceCatalog.Snapshot snapshot = serviceCatalog.snapshot();
+        // La versión del snapshot identifica exactamente la lista que se devuelve
+        String eTag = ETags.of(serviceVersions.epoch(), snapshot.version());
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+        List<ServiceResponseDTO> services = snapshot.services();
         log.info("Se encontraron {} servicios", services.size());
-        return ResponseEntity.ok(services);
+        return ResponseEntity.ok().eTag(eTag).body(services);
+    }
+
+    /**
+     * Obtiene los servicios mejor calificados (promedio bayesiano), en general o
+     * dentro de una categoría o un país
+     * 
+     * @param k        Cantidad de servicios (1 a 100)
+     * @param category Nombre de la categoría, opcional
+     * @param country  Código del país, opcional
+     * @return El ranking, del mejor al peor
+     */
+    @GetMapping("/top")
+    public ResponseEntity<List<TopServiceDTO>> getTopServices(@RequestParam(defaultValue = "10") int k,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String country) {
+        if (k < 1 || k > MAX_TOP_SERVICES || (category != null && country != null)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(serviceLeaderboard.top(k, category, country));
     }
 
     /**
@@ -48,13 +101,19 @@ public class ServiceController {
      * @return El servicio si existe, 404 si no se encuentra
      */
     @GetMapping("/{serviceId}")
-    public ResponseEntity<ServiceResponseDTO> getServiceById(@PathVariable UUID serviceId) {
+    public ResponseEntity<ServiceResponseDTO> getServiceById(@PathVariable UUID serviceId, WebRequest request) {
         log.info("GET /api/services/{} - Buscando servicio", serviceId);
-        ServiceResponseDTO service = ServiceKafkaConsumer.getServiceById(serviceId);
+        // La versión se lee antes que el servicio: si cambia entre ambas lecturas,
+        // el ETag queda viejo y el cliente solo pierde un 304
+        String eTag = ETags.of(serviceVersions.epoch(), serviceCatalog.version());
+        ServiceResponseDTO service = serviceCatalog.get(serviceId);
 
         if (service != null) {
+            if (request.checkNotModified(eTag)) {
+                return null;
+            }
             log.info("Servicio {} encontrado", serviceId);
-            return ResponseEntity.ok(service);
+            return ResponseEntity.ok().eTag(eTag).body(service);
         } else {
             log.warn("Servicio {} no encontrado", serviceId);
             return ResponseEntity.notFound().build();
@@ -70,10 +129,28 @@ public class ServiceController {
     @GetMapping("/{serviceId}/available")
     public ResponseEntity<Boolean> isServiceAvailable(@PathVariable UUID serviceId) {
         log.info("GET /api/services/{}/available - Verificando disponibilidad", serviceId);
-        boolean available = ServiceKafkaConsumer.isServiceAvailable(serviceId);
+        boolean available = serviceCatalog.contains(serviceId);
         return ResponseEntity.ok(available);
     }
 
+    /**
+     * Obtiene el resumen de calificaciones de un servicio: cantidad, suma,
+     * promedio e histograma de estrellas
+     * 
+     * @param serviceId ID del servicio
+     * @return El resumen; con valores en cero si el servicio no tiene
+     *         comentarios calificados
+     */
+    @GetMapping("/{serviceId}/rating-summary")
+    public ResponseEntity<RatingSummaryDTO> getRatingSummary(@PathVariable UUID serviceId, WebRequest request) {
+        log.info("GET /api/services/{}/rating-summary - Obteniendo resumen de calificaciones", serviceId);
+        String eTag = ETags.of(serviceVersions.epoch(), serviceVersions.version(serviceId));
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(eTag).body(ratingSummaryService.getSummary(serviceId));
+    }
+
     /**
      * Obtiene el conteo total de servicios disponibles
      * 
@@ -82,7 +159,7 @@ public class ServiceController {
     @GetMapping("/count")
     public ResponseEntity<Integer> getServicesCount() {
         log.info("GET /api/services/count - Obteniendo conteo de servicios");
-        int count = ServiceKafkaConsumer.getAvailableServicesCount();
+        int count = serviceCatalog.size();
         log.info("Total de servicios: {}", count);
         return ResponseEntity.ok(count);
     }
@@ -95,19 +172,46 @@ public class ServiceController {
     @DeleteMapping("/clear")
     public ResponseEntity<String> clearServices() {
         log.warn("DELETE /api/services/clear - Limpiando lista de servicios");
-        ServiceKafkaConsumer.clearServicesList();
+        serviceCatalog.clear();
         return ResponseEntity.ok("Lista de servicios limpiada exitosamente");
     }
 
+    /**
+     * Crea comentarios en lote para servicios de la cola de Kafka. Cada
+     * elemento se valida por separado y la respuesta trae el resultado de cada
+     * uno
+     * 
+     * @param commentDTOs Comentarios a crear
+     * @return Resultados por elemento; 400 si el lote está vacío o supera el
+     *         máximo
+     */
+    @PostMapping("/comments:batch")
+    public ResponseEntity<?> createCommentsBatch(@RequestBody List<CreateCommentDTO> commentDTOs) {
+        log.info("POST /api/services/comments:batch - Creando {} comentarios",
+                commentDTOs != null ? commentDTOs.size() : 0);
+        try {
+            BatchCommentResponseDTO response = commentService.createCommentsBatch(commentDTOs);
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            log.warn("Lote de comentarios rechazado: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            log.error("Error creando lote de comentarios: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Error al crear el lote de comentarios: " + e.getMessage());
+        }
+    }
+
     /**
      * Crea un comentario para un servicio de la cola de Kafka
-     * Valida que el servicio exista antes de crear el comentario
+     * Valida que el servicio exista antes de crear el comentario. Si no está
+     * en la cola se consulta a marketplace sin retener el hilo del servlet
      * 
      * @param commentDTO Datos del comentario a crear
      * @return El comentario creado con status 201
      */
     @PostMapping("/{serviceId}/comments")
-    public ResponseEntity<?> createCommentForService(
+    public CompletableFuture<ResponseEntity<?>> createCommentForService(
             @PathVariable UUID serviceId,
             @Valid @RequestBody CreateCommentDTO commentDTO) {
 
@@ -117,12 +221,21 @@ public class ServiceController {
         if (!serviceId.equals(commentDTO.getServiceId())) {
             log.warn("ServiceId del path ({}) no coincide con el del body ({})",
                     serviceId, commentDTO.getServiceId());
-            return ResponseEntity.badRequest()
-                    .body("El ID del servicio en la URL no coincide con el del cuerpo de la petición");
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                    .body("El ID del servicio en la URL no coincide con el del cuerpo de la petición"));
         }
 
+        CompletableFuture<ServiceResponseDTO> service = serviceLookupService.findService(serviceId);
+        // Si el servicio estaba en la cola se crea en este mismo hilo; si llega
+        // desde Kafka, se sale del hilo del consumidor antes de tocar la base
+        return service.isDone()
+                ? service.thenApply(found -> createComment(commentDTO, found))
+                : service.thenApplyAsync(found -> createComment(commentDTO, found), taskExecutor);
+    }
+
+    private ResponseEntity<?> createComment(CreateCommentDTO commentDTO, ServiceResponseDTO service) {
         try {
-            Comment createdComment = commentService.createCommentForKafkaService(commentDTO);
+            Comment createdComment = commentService.createCommentForKafkaService(commentDTO, service);
             log.info("Comentario creado exitosamente: {}", createdComment.getId());
             return ResponseEntity.status(HttpStatus.CREATED).body(createdComment);
 
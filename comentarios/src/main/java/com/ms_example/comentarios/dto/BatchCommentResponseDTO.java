@@ -0,0 +1,24 @@
+package com.ms_example.comentarios.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Respuesta de la creación de comentarios en lote, con el resultado de cada
+ * elemento en el orden recibido
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchCommentResponseDTO {
+
+    private int created;
+    private int rejected;
+    private List<BatchCommentResultDTO> results;
+
+}
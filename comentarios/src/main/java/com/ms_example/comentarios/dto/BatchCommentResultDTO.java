@@ -0,0 +1,32 @@
+package com.ms_example.comentarios.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Resultado de un elemento de la creación de comentarios en lote
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchCommentResultDTO {
+
+    public enum Status {
+        CREATED,
+        INVALID,
+        SERVICE_NOT_FOUND,
+        SERVICE_INACTIVE
+    }
+
+    // Posición del elemento en la petición
+    private int index;
+    private Status status;
+    private Long commentId;
+    private List<String> errors;
+
+}
@@ -0,0 +1,83 @@
+package com.ms_example.comentarios.dto;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+import lombok.Getter;
+
+/**
+ * Cursor opaco para la paginación keyset de comentarios.
+ * Guarda el valor de ordenamiento y el id del último comentario entregado,
+ * de modo que la siguiente página se obtiene con una búsqueda por índice en
+ * lugar de un OFFSET.
+ */
+@Getter
+public final class CommentCursor {
+
+    private static final String SEPARATOR = "|";
+
+    private final CommentSort sort;
+    private final LocalDateTime createdAt;
+    private final BigDecimal rating;
+    private final Long id;
+
+    private CommentCursor(CommentSort sort, LocalDateTime createdAt, BigDecimal rating, Long id) {
+        this.sort = sort;
+        this.createdAt = createdAt;
+        this.rating = rating;
+        this.id = id;
+    }
+
+    /**
+     * Construye el cursor que apunta justo después del comentario indicado
+     */
+    public static CommentCursor after(CommentSort sort, CommentView last) {
+        return new CommentCursor(sort, last.createdAt(), last.rating(), last.id());
+    }
+
+    public String encode() {
+        String key = switch (sort) {
+            case RECENT -> createdAt.toString();
+            case RATING -> rating != null ? rating.toPlainString() : "";
+        };
+        String raw = sort.name() + SEPARATOR + key + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodifica un cursor recibido como parámetro {@code after}
+     *
+     * @param token    Cursor opaco, puede ser null para la primera página
+     * @param expected Ordenamiento solicitado; el cursor debe haber sido
+     *                 generado con el mismo
+     * @return El cursor decodificado, o null si no se envió
+     * @throws IllegalArgumentException si el cursor es inválido
+     */
+    public static CommentCursor decode(String token, CommentSort expected) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", -1);
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Cursor inválido");
+            }
+            CommentSort sort = CommentSort.valueOf(parts[0]);
+            if (sort != expected) {
+                throw new IllegalArgumentException("El cursor no corresponde al ordenamiento " + expected);
+            }
+            Long id = Long.valueOf(parts[2]);
+            return switch (sort) {
+                case RECENT -> new CommentCursor(sort, LocalDateTime.parse(parts[1]), null, id);
+                case RATING -> new CommentCursor(sort, null,
+                        parts[1].isEmpty() ? null : new BigDecimal(parts[1]), id);
+            };
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Cursor inválido", e);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.ms_example.comentarios.dto;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.UUID;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Aviso entre réplicas de que cambiaron comentarios, para que cada una
+ * invalide sus cachés de lectura
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CommentInvalidationDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    // Réplica que hizo el cambio; ya invalidó sus cachés y descarta su propio aviso
+    private String origin;
+    private List<Long> commentIds;
+    private List<UUID> serviceUuids;
+    private List<Long> serviceIdHashes;
+
+}
@@ -0,0 +1,20 @@
+package com.ms_example.comentarios.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Página de comentarios obtenida por paginación keyset
+ */
+@Getter
+@AllArgsConstructor
+public class CommentPage {
+
+    private final List<CommentView> items;
+
+    // Cursor para solicitar la siguiente página, null si no hay más resultados
+    private final String nextCursor;
+
+}
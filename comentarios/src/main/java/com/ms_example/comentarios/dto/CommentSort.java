@@ -0,0 +1,31 @@
+package com.ms_example.comentarios.dto;
+
+/**
+ * Criterios de ordenamiento disponibles para los listados paginados de
+ * comentarios. Ambos desempatan por id para que el orden sea estable.
+ */
+public enum CommentSort {
+
+    /** Más recientes primero: (createdAt DESC, id DESC) */
+    RECENT,
+
+    /** Mejor calificados primero: (rating DESC, id DESC) */
+    RATING;
+
+    /**
+     * Convierte el parámetro de consulta {@code sort} en un criterio de
+     * ordenamiento
+     *
+     * @throws IllegalArgumentException si el valor no es reconocido
+     */
+    public static CommentSort fromParam(String value) {
+        if (value == null || value.isBlank()) {
+            return RECENT;
+        }
+        return switch (value.trim().toLowerCase()) {
+            case "recent", "createdat" -> RECENT;
+            case "rating" -> RATING;
+            default -> throw new IllegalArgumentException("Ordenamiento no soportado: " + value);
+        };
+    }
+}
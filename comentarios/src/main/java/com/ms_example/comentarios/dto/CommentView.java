@@ -0,0 +1,26 @@
+package com.ms_example.comentarios.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Proyección de solo lectura de un comentario para las consultas de la API.
+ * Se construye directamente en el SELECT, por lo que Hibernate no registra la
+ * entidad en el contexto de persistencia ni guarda su copia para el dirty
+ * checking. Serializa con los mismos campos que {@code Comment}.
+ */
+public record CommentView(
+        Long id,
+        UUID serviceUuid,
+        Long serviceIdHash,
+        Long profileId,
+        BigDecimal rating,
+        String content,
+        LocalDateTime createdAt) {
+
+    // Expresión de constructor JPQL sobre el alias "c" de Comment
+    public static final String SELECT = "SELECT new com.ms_example.comentarios.dto.CommentView("
+            + "c.id, c.serviceUuid, c.serviceIdHash, c.profileId, c.rating, c.content, c.createdAt) ";
+
+}
@@ -0,0 +1,28 @@
+package com.ms_example.comentarios.dto;
+
+import java.math.BigDecimal;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO con el resumen de calificaciones de un servicio: cantidad de
+ * comentarios calificados, suma, promedio e histograma de estrellas (0 a 5)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RatingSummaryDTO {
+
+    private String serviceUuid;
+    private long count;
+    private BigDecimal sum;
+    private BigDecimal average;
+
+    // histogram[n] = cantidad de comentarios con rating en [n, n+1)
+    private long[] histogram;
+
+}
@@ -0,0 +1,24 @@
+package com.ms_example.comentarios.dto;
+
+import java.util.UUID;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO para solicitar la información de un servicio al microservicio
+ * marketplace vía Kafka. La respuesta llega por service-response-topic con el
+ * mismo requestId
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ServiceRequestDTO {
+
+    private UUID serviceId;
+    private String requestId;
+    // Microservicio que origina la solicitud
+    private String requester;
+
+}
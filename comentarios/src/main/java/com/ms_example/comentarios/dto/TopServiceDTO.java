@@ -0,0 +1,29 @@
+package com.ms_example.comentarios.dto;
+
+import java.math.BigDecimal;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Servicio en el ranking de mejor calificados. El score es el promedio
+ * bayesiano de sus calificaciones
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TopServiceDTO {
+
+    private int rank;
+    private String serviceId;
+    private String title;
+    private String categoryName;
+    private String countryCode;
+    private BigDecimal score;
+    private BigDecimal average;
+    private long count;
+
+}
@@ -2,14 +2,19 @@ package com.ms_example.comentarios.model;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.UUID;
 
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
@@ -22,15 +27,29 @@ import lombok.Setter;
 @NoArgsConstructor
 
 @Entity
-@Table(name = "comments")
+@Table(name = "comments", indexes = {
+        // Índices compuestos para la paginación keyset por servicio y por perfil.
+        // Los índices sobre service_uuid también resuelven la búsqueda exacta
+        // por UUID, al ser su columna líder.
+        @Index(name = "idx_comments_service_uuid_created", columnList = "service_uuid, created_at, id"),
+        @Index(name = "idx_comments_service_uuid_rating", columnList = "service_uuid, rating, id"),
+        @Index(name = "idx_comments_service_created", columnList = "service_id_hash, created_at, id"),
+        @Index(name = "idx_comments_service_rating", columnList = "service_id_hash, rating, id"),
+        @Index(name = "idx_comments_profile_created", columnList = "profile_id, created_at, id"),
+        @Index(name = "idx_comments_profile_rating", columnList = "profile_id, rating, id")
+})
 public class Comment {
 
+    // Secuencia con optimizador pooled: se reservan 50 ids por consulta a la
+    // secuencia, y al no depender del INSERT los lotes JDBC pueden agruparse
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "comments_seq")
+    @SequenceGenerator(name = "comments_seq", sequenceName = "comments_seq", allocationSize = 50)
     private Long id;
 
+    @JdbcTypeCode(SqlTypes.UUID)
     @Column(name = "service_uuid")
-    private String serviceUuid;
+    private UUID serviceUuid;
 
     @Column(name = "service_id_hash")
     private Long serviceIdHash;
@@ -44,6 +63,7 @@ public class Comment {
     private String content;
 
     @CreationTimestamp
+    @Column(name = "created_at")
     private LocalDateTime createdAt;
 
 }
@@ -0,0 +1,71 @@
+package com.ms_example.comentarios.model;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Lob;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Evento pendiente de publicar en comments-response. Se escribe en la misma
+ * transacción que el comentario y lo publica CommentOutboxRelay. Un evento que
+ * no se pudo publicar tras varios intentos queda apartado (parkedAt) para
+ * revisión y el relay continúa con los siguientes.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+
+@Entity
+@Table(name = "comment_outbox", indexes = {
+        @Index(name = "idx_comment_outbox_pending", columnList = "published_at, parked_at, id")
+})
+public class CommentOutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "comment_outbox_seq")
+    @SequenceGenerator(name = "comment_outbox_seq", sequenceName = "comment_outbox_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "comment_id", nullable = false)
+    private Long commentId;
+
+    @JdbcTypeCode(SqlTypes.UUID)
+    @Column(name = "service_uuid")
+    private UUID serviceUuid;
+
+    // CommentResponseDTO serializado como JSON
+    @Lob
+    @Column(name = "payload", nullable = false)
+    private String payload;
+
+    @CreationTimestamp
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "published_at")
+    private LocalDateTime publishedAt;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    @Column(name = "parked_at")
+    private LocalDateTime parkedAt;
+
+}
@@ -0,0 +1,37 @@
+package com.ms_example.comentarios.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.ms_example.comentarios.model.CommentOutboxEvent;
+
+@Repository
+public interface CommentOutboxRepository extends JpaRepository<CommentOutboxEvent, Long> {
+
+    // Pendientes de publicar, sin los apartados
+    List<CommentOutboxEvent> findByPublishedAtIsNullAndParkedAtIsNullOrderByIdAsc(Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE CommentOutboxEvent e SET e.publishedAt = :publishedAt WHERE e.id IN :ids")
+    int markPublished(@Param("ids") List<Long> ids, @Param("publishedAt") LocalDateTime publishedAt);
+
+    @Modifying
+    @Query("UPDATE CommentOutboxEvent e SET e.attempts = e.attempts + 1 WHERE e.id = :id")
+    int incrementAttempts(@Param("id") Long id);
+
+    @Modifying
+    @Query("UPDATE CommentOutboxEvent e SET e.parkedAt = :parkedAt, e.attempts = e.attempts + 1 WHERE e.id = :id")
+    int park(@Param("id") Long id, @Param("parkedAt") LocalDateTime parkedAt);
+
+    @Modifying
+    @Query("DELETE FROM CommentOutboxEvent e WHERE e.publishedAt < :before")
+    int deletePublishedBefore(@Param("before") LocalDateTime before);
+
+}
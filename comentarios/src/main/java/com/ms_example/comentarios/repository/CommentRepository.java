@@ -1,16 +1,55 @@
 package com.ms_example.comentarios.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.ms_example.comentarios.dto.CommentView;
 import com.ms_example.comentarios.model.Comment;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
 
 @Repository
-public interface CommentRepository extends JpaRepository<Comment, Long> {
+public interface CommentRepository extends JpaRepository<Comment, Long>, CommentRepositoryCustom {
 
     List<Comment> findByServiceIdHash(Long serviceIdHash);
 
+    List<Comment> findByServiceUuid(UUID serviceUuid);
+
     List<Comment> findByProfileId(Long profileId);
 
+    // Proyecciones de solo lectura para la API (ver CommentView)
+    @Transactional(readOnly = true)
+    @Query(CommentView.SELECT + "FROM Comment c")
+    List<CommentView> findAllViews();
+
+    @Transactional(readOnly = true)
+    @Query(CommentView.SELECT + "FROM Comment c WHERE c.id = :id")
+    Optional<CommentView> findViewById(Long id);
+
+    @Transactional(readOnly = true)
+    @Query(CommentView.SELECT + "FROM Comment c WHERE c.id IN :ids")
+    List<CommentView> findViewsByIdIn(Collection<Long> ids);
+
+    // Recorrido por lotes en orden de id (reconstrucción del índice de búsqueda)
+    List<Comment> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    // Mayor id de la tabla, o null si está vacía
+    @Transactional(readOnly = true)
+    @Query("SELECT MAX(c.id) FROM Comment c")
+    Long findMaxId();
+
+    /**
+     * Agrega los ratings por servicio y estrella (parte entera del rating).
+     * Cada fila contiene: serviceUuid, estrellas, cantidad y suma de ratings.
+     */
+    @Query("SELECT c.serviceUuid, FLOOR(c.rating), COUNT(c), SUM(c.rating) FROM Comment c "
+            + "WHERE c.serviceUuid IS NOT NULL AND c.rating IS NOT NULL "
+            + "GROUP BY c.serviceUuid, FLOOR(c.rating)")
+    List<Object[]> aggregateRatingsByServiceUuid();
+
 }
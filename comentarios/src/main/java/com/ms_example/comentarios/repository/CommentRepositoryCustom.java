@@ -0,0 +1,25 @@
+package com.ms_example.comentarios.repository;
+
+import java.util.List;
+import java.util.UUID;
+
+import com.ms_example.comentarios.dto.CommentCursor;
+import com.ms_example.comentarios.dto.CommentSort;
+import com.ms_example.comentarios.dto.CommentView;
+import com.ms_example.comentarios.model.Comment;
+
+/**
+ * Consultas paginadas por keyset sobre la tabla de comentarios.
+ * Cada página se resuelve con una búsqueda sobre los índices compuestos
+ * declarados en {@link Comment}, sin importar cuántos comentarios tenga el
+ * servicio o el perfil, y devuelve proyecciones de solo lectura.
+ */
+public interface CommentRepositoryCustom {
+
+    List<CommentView> findPageByServiceUuid(UUID serviceUuid, CommentSort sort, CommentCursor after, int limit);
+
+    List<CommentView> findPageByServiceIdHash(Long serviceIdHash, CommentSort sort, CommentCursor after, int limit);
+
+    List<CommentView> findPageByProfileId(Long profileId, CommentSort sort, CommentCursor after, int limit);
+
+}
@@ -0,0 +1,79 @@
+package com.ms_example.comentarios.repository;
+
+import java.util.List;
+import java.util.UUID;
+
+import com.ms_example.comentarios.dto.CommentCursor;
+import com.ms_example.comentarios.dto.CommentSort;
+import com.ms_example.comentarios.dto.CommentView;
+
+import org.springframework.transaction.annotation.Transactional;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+@Transactional(readOnly = true)
+class CommentRepositoryImpl implements CommentRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<CommentView> findPageByServiceUuid(UUID serviceUuid, CommentSort sort, CommentCursor after, int limit) {
+        return findPage("serviceUuid", serviceUuid, sort, after, limit);
+    }
+
+    @Override
+    public List<CommentView> findPageByServiceIdHash(Long serviceIdHash, CommentSort sort, CommentCursor after,
+            int limit) {
+        return findPage("serviceIdHash", serviceIdHash, sort, after, limit);
+    }
+
+    @Override
+    public List<CommentView> findPageByProfileId(Long profileId, CommentSort sort, CommentCursor after, int limit) {
+        return findPage("profileId", profileId, sort, after, limit);
+    }
+
+    private List<CommentView> findPage(String ownerProperty, Object ownerValue, CommentSort sort,
+            CommentCursor after, int limit) {
+        StringBuilder jpql = new StringBuilder(CommentView.SELECT).append("FROM Comment c WHERE c.")
+                .append(ownerProperty).append(" = :owner");
+
+        if (after != null) {
+            jpql.append(" AND ").append(keysetPredicate(after));
+        }
+        jpql.append(switch (sort) {
+            case RECENT -> " ORDER BY c.createdAt DESC, c.id DESC";
+            case RATING -> " ORDER BY c.rating DESC NULLS LAST, c.id DESC";
+        });
+
+        TypedQuery<CommentView> query = entityManager.createQuery(jpql.toString(), CommentView.class)
+                .setParameter("owner", ownerValue)
+                .setMaxResults(limit);
+
+        if (after != null) {
+            query.setParameter("lastId", after.getId());
+            if (after.getSort() == CommentSort.RECENT) {
+                query.setParameter("lastCreatedAt", after.getCreatedAt());
+            } else if (after.getRating() != null) {
+                query.setParameter("lastRating", after.getRating());
+            }
+        }
+        return query.getResultList();
+    }
+
+    /**
+     * Condición "estrictamente después del cursor" para el orden descendente.
+     * Los comentarios sin rating van al final del orden por rating.
+     */
+    private String keysetPredicate(CommentCursor after) {
+        if (after.getSort() == CommentSort.RECENT) {
+            return "(c.createdAt < :lastCreatedAt OR (c.createdAt = :lastCreatedAt AND c.id < :lastId))";
+        }
+        if (after.getRating() == null) {
+            return "(c.rating IS NULL AND c.id < :lastId)";
+        }
+        return "(c.rating < :lastRating OR (c.rating = :lastRating AND c.id < :lastId) OR c.rating IS NULL)";
+    }
+}
@@ -0,0 +1,72 @@
+package com.ms_example.comentarios.repository;
+
+import org.flywaydb.core.api.MigrationVersion;
+import org.flywaydb.core.api.migration.Context;
+import org.flywaydb.core.api.migration.JavaMigration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Migración V2: convierte la columna service_uuid de bases existentes, donde
+ * se guardaba como texto, al tipo UUID nativo de H2. Las filas con un valor
+ * que no es un UUID válido quedan con service_uuid en null y conservan su
+ * service_id_hash. En bases creadas por V1 la columna ya es UUID y no hace
+ * nada.
+ */
+@Component
+@Slf4j
+public class ServiceUuidBackfill implements JavaMigration {
+
+    private static final String UUID_PATTERN =
+            "^[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}$";
+
+    @Override
+    public MigrationVersion getVersion() {
+        return MigrationVersion.fromVersion("2");
+    }
+
+    @Override
+    public String getDescription() {
+        return "service uuid as uuid";
+    }
+
+    @Override
+    public Integer getChecksum() {
+        return null;
+    }
+
+    @Override
+    public boolean canExecuteInTransaction() {
+        return true;
+    }
+
+    @Override
+    public void migrate(Context context) {
+        backfill(new JdbcTemplate(new SingleConnectionDataSource(context.getConnection(), true)));
+    }
+
+    void backfill(JdbcTemplate jdbcTemplate) {
+        String dataType = jdbcTemplate.query(
+                "SELECT DATA_TYPE FROM INFORMATION_SCHEMA.COLUMNS "
+                        + "WHERE TABLE_NAME = 'COMMENTS' AND COLUMN_NAME = 'SERVICE_UUID'",
+                rs -> rs.next() ? rs.getString(1) : null);
+
+        if (dataType == null || "UUID".equalsIgnoreCase(dataType)) {
+            return;
+        }
+
+        log.info("Migrando columna comments.service_uuid de {} a UUID", dataType);
+        int invalid = jdbcTemplate.update(
+                "UPDATE comments SET service_uuid = NULL "
+                        + "WHERE service_uuid IS NOT NULL AND NOT REGEXP_LIKE(service_uuid, ?)",
+                UUID_PATTERN);
+        if (invalid > 0) {
+            log.warn("{} comentarios tenían un service_uuid inválido y quedaron sin UUID", invalid);
+        }
+        jdbcTemplate.execute("ALTER TABLE comments ALTER COLUMN service_uuid SET DATA TYPE UUID");
+        log.info("Columna comments.service_uuid migrada a UUID");
+    }
+}
@@ -0,0 +1,93 @@
+package com.ms_example.comentarios.security;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Convierte un JWT en autenticación reutilizando las autoridades ya calculadas
+ * para el mismo token (jti, o el token completo si no trae jti). Cada entrada
+ * vence junto con el token, y el caché está acotado en tamaño.
+ *
+ * Solo se guardan las autoridades: el JwtAuthenticationToken se crea en cada
+ * petición porque Spring Security le asigna los detalles de la petición.
+ */
+public class CachingJwtAuthenticationConverter implements Converter<Jwt, AbstractAuthenticationToken> {
+
+    static final String CACHE_NAME = "comments.security.jwt.authorities";
+
+    private record CachedAuthorities(Collection<GrantedAuthority> authorities, Instant expiresAt) {
+    }
+
+    private final Converter<Jwt, Collection<GrantedAuthority>> authoritiesConverter;
+    private final Cache<String, CachedAuthorities> authoritiesByToken;
+
+    public CachingJwtAuthenticationConverter(Converter<Jwt, Collection<GrantedAuthority>> authoritiesConverter,
+            long maximumSize, MeterRegistry meterRegistry) {
+        this.authoritiesConverter = authoritiesConverter;
+        this.authoritiesByToken = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new UntilTokenExpiry())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, authoritiesByToken, CACHE_NAME);
+    }
+
+    /**
+     * Cada entrada vive hasta el exp del token; leerla no la extiende
+     */
+    private static final class UntilTokenExpiry implements Expiry<String, CachedAuthorities> {
+
+        @Override
+        public long expireAfterCreate(String key, CachedAuthorities cached, long currentTime) {
+            Duration remaining = Duration.between(Instant.now(), cached.expiresAt());
+            if (remaining.isNegative()) {
+                return 0;
+            }
+            // Evitar el desbordamiento de toNanos con vencimientos muy lejanos
+            return remaining.getSeconds() >= Long.MAX_VALUE / 1_000_000_000L ? Long.MAX_VALUE : remaining.toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, CachedAuthorities cached, long currentTime,
+                long currentDuration) {
+            return expireAfterCreate(key, cached, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, CachedAuthorities cached, long currentTime,
+                long currentDuration) {
+            return currentDuration;
+        }
+    }
+
+    @Override
+    public AbstractAuthenticationToken convert(Jwt jwt) {
+        return new JwtAuthenticationToken(jwt, authorities(jwt), jwt.getSubject());
+    }
+
+    private Collection<GrantedAuthority> authorities(Jwt jwt) {
+        Instant expiresAt = jwt.getExpiresAt();
+        if (expiresAt == null) {
+            // Sin vencimiento no hay un límite seguro para el caché
+            return authoritiesConverter.convert(jwt);
+        }
+        String key = jwt.getId() != null ? jwt.getId() : jwt.getTokenValue();
+        return authoritiesByToken
+                .get(key, k -> new CachedAuthorities(authoritiesConverter.convert(jwt), expiresAt))
+                .authorities();
+    }
+}
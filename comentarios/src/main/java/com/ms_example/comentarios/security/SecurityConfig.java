@@ -1,29 +1,51 @@
 package com.ms_example.comentarios.security;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.convert.converter.Converter;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
-import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
 import org.springframework.security.oauth2.server.resource.authentication.JwtGrantedAuthoritiesConverter;
 import org.springframework.security.web.SecurityFilterChain;
 
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.jwk.source.JWKSourceBuilder;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.URL;
+import java.time.Duration;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Stream;
 
 @Configuration
+@Slf4j
 @EnableWebSecurity
 @EnableMethodSecurity(prePostEnabled = true)
 public class SecurityConfig {
 
         @Bean
-        public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+        public SecurityFilterChain filterChain(HttpSecurity http,
+                        CachingJwtAuthenticationConverter jwtAuthenticationConverter) throws Exception {
                 http
                                 .csrf(csrf -> csrf
                                                 .disable())
@@ -43,17 +65,21 @@ public class SecurityConfig {
                                                 .anyRequest().authenticated())
                                 .oauth2ResourceServer(oauth2 -> oauth2
                                                 .jwt(jwt -> jwt.jwtAuthenticationConverter(
-                                                                jwtAuthenticationConverter())));
+                                                                jwtAuthenticationConverter)));
 
                 return http.build();
         }
 
+        /**
+         * Autoridades del JWT: las de scope más los roles de realm de Keycloak.
+         * El resultado se guarda por token hasta que vence
+         */
         @Bean
-        public JwtAuthenticationConverter jwtAuthenticationConverter() {
-                JwtAuthenticationConverter converter = new JwtAuthenticationConverter();
+        public CachingJwtAuthenticationConverter jwtAuthenticationConverter(MeterRegistry meterRegistry,
+                        @Value("${comments.security.jwt.cache-max-size:10000}") long cacheMaxSize) {
+                JwtGrantedAuthoritiesConverter defaultConverter = new JwtGrantedAuthoritiesConverter();
 
-                converter.setJwtGrantedAuthoritiesConverter(jwt -> {
-                        JwtGrantedAuthoritiesConverter defaultConverter = new JwtGrantedAuthoritiesConverter();
+                Converter<Jwt, Collection<GrantedAuthority>> authoritiesConverter = jwt -> {
                         Collection<GrantedAuthority> authorities = defaultConverter.convert(jwt);
 
                         // Extract realm roles from Keycloak JWT
@@ -68,9 +94,55 @@ public class SecurityConfig {
                                         authorities != null ? authorities.stream() : Stream.empty(),
                                         realmRoles.stream().map(role -> new SimpleGrantedAuthority("ROLE_" + role)))
                                         .toList();
+                };
+
+                return new CachingJwtAuthenticationConverter(authoritiesConverter, cacheMaxSize, meterRegistry);
+        }
+
+        /**
+         * Llaves de firma de Keycloak. Se descargan al iniciar y se renuevan en
+         * segundo plano antes de vencer; mientras tanto (o si Keycloak no
+         * responde) se siguen usando las llaves en caché
+         */
+        @Bean
+        public JWKSource<SecurityContext> jwkSource(
+                        @Value("${spring.security.oauth2.resourceserver.jwt.jwk-set-uri}") URL jwkSetUri,
+                        @Value("${comments.security.jwk.cache-ttl:15m}") Duration cacheTtl,
+                        @Value("${comments.security.jwk.refresh-ahead:1m}") Duration refreshAhead,
+                        @Value("${comments.security.jwk.refresh-timeout:15s}") Duration refreshTimeout,
+                        @Value("${comments.security.jwk.outage-tolerance:1h}") Duration outageTolerance) {
+                JWKSource<SecurityContext> jwkSource = JWKSourceBuilder.<SecurityContext>create(jwkSetUri)
+                                .cache(cacheTtl.toMillis(), refreshTimeout.toMillis())
+                                .refreshAheadCache(refreshAhead.toMillis(), true)
+                                .outageTolerant(outageTolerance.toMillis())
+                                .build();
+
+                // La primera descarga no debe bloquear el arranque ni la primera petición
+                CompletableFuture.runAsync(() -> {
+                        try {
+                                jwkSource.get(new JWKSelector(new JWKMatcher.Builder().build()), null);
+                        } catch (Exception e) {
+                                log.warn("No se pudieron precargar las llaves JWK de {}: {}", jwkSetUri,
+                                                e.getMessage());
+                        }
+                });
+                return jwkSource;
+        }
+
+        @Bean
+        public JwtDecoder jwtDecoder(JWKSource<SecurityContext> jwkSource,
+                        @Value("${spring.security.oauth2.resourceserver.jwt.issuer-uri:}") String issuerUri) {
+                DefaultJWTProcessor<SecurityContext> jwtProcessor = new DefaultJWTProcessor<>();
+                jwtProcessor.setJWSKeySelector(new JWSVerificationKeySelector<>(JWSAlgorithm.RS256, jwkSource));
+                // Los claims los validan los validadores de Spring Security
+                jwtProcessor.setJWTClaimsSetVerifier((claims, context) -> {
                 });
 
-                return converter;
+                NimbusJwtDecoder decoder = new NimbusJwtDecoder(jwtProcessor);
+                decoder.setJwtValidator(issuerUri.isBlank()
+                                ? JwtValidators.createDefault()
+                                : JwtValidators.createDefaultWithIssuer(issuerUri));
+                return decoder;
         }
 
 }
@@ -0,0 +1,128 @@
+package com.ms_example.comentarios.service;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ms_example.comentarios.dto.CommentPage;
+import com.ms_example.comentarios.dto.CommentSort;
+import com.ms_example.comentarios.dto.CommentView;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Caché de lectura de comentarios: por id y primera página de cada servicio
+ * (por UUID y por id hash heredado). Las páginas siguientes no se guardan; se
+ * piden con cursores distintos y rara vez se repiten.
+ *
+ * Las entradas se invalidan después de cada commit (CommentService) y cuando
+ * otra réplica avisa de un cambio (CommentCacheInvalidator); el tiempo de vida
+ * acota lo que puede durar una entrada si se pierde un aviso.
+ *
+ * Una carga que leyó la base antes de un commit nunca queda en la caché
+ * después de su invalidación: la carga por id corre bajo el lock de la entrada
+ * de Caffeine, que la invalidación espera, y las páginas de un servicio viven
+ * en un mapa propio que la invalidación descarta completo.
+ *
+ * Aciertos y fallos se publican en actuator bajo cache.gets.
+ */
+@Service
+public class CommentCache {
+
+    static final String BY_ID_CACHE_NAME = "comments.cache.by-id";
+    static final String PAGES_CACHE_NAME = "comments.cache.service-pages";
+
+    private record PageQuery(CommentSort sort, int limit) {
+    }
+
+    private final Cache<Long, CommentView> byId;
+    // Servicio (UUID o id hash) -> primeras páginas por orden y tamaño
+    private final Cache<Object, Map<PageQuery, CommentPage>> pagesByService;
+    private final Counter pageHits;
+    private final Counter pageMisses;
+
+    public CommentCache(MeterRegistry meterRegistry,
+            @Value("${comments.cache.max-comments:100000}") long maxComments,
+            @Value("${comments.cache.max-services:10000}") long maxServices,
+            @Value("${comments.cache.expire-after-write:10m}") Duration expireAfterWrite) {
+        this.byId = Caffeine.newBuilder()
+                .maximumSize(maxComments)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        this.pagesByService = Caffeine.newBuilder()
+                .maximumSize(maxServices)
+                .expireAfterWrite(expireAfterWrite)
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, byId, BY_ID_CACHE_NAME);
+        this.pageHits = pageCounter(meterRegistry, "hit");
+        this.pageMisses = pageCounter(meterRegistry, "miss");
+        Gauge.builder("cache.size", pagesByService, Cache::estimatedSize)
+                .description("Servicios con páginas en caché")
+                .tag("cache", PAGES_CACHE_NAME)
+                .register(meterRegistry);
+    }
+
+    private static Counter pageCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("cache.gets")
+                .description("Consultas de la primera página de un servicio, por resultado")
+                .tag("cache", PAGES_CACHE_NAME)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Comentario por id; un comentario inexistente no se guarda
+     */
+    public CommentView getById(Long id, Function<Long, CommentView> loader) {
+        return byId.get(id, loader);
+    }
+
+    public CommentPage firstPageByServiceUuid(UUID serviceUuid, CommentSort sort, int limit,
+            Supplier<CommentPage> loader) {
+        return firstPage(serviceUuid, sort, limit, loader);
+    }
+
+    public CommentPage firstPageByServiceIdHash(Long serviceIdHash, CommentSort sort, int limit,
+            Supplier<CommentPage> loader) {
+        return firstPage(serviceIdHash, sort, limit, loader);
+    }
+
+    private CommentPage firstPage(Object service, CommentSort sort, int limit, Supplier<CommentPage> loader) {
+        Map<PageQuery, CommentPage> pages = pagesByService.get(service, key -> new ConcurrentHashMap<>());
+        PageQuery query = new PageQuery(sort, limit);
+        CommentPage page = pages.get(query);
+        if (page != null) {
+            pageHits.increment();
+            return page;
+        }
+        pageMisses.increment();
+        // Si el servicio se invalida durante la carga, este mapa ya no está en la
+        // caché y la página cargada se descarta con él
+        page = loader.get();
+        pages.put(query, page);
+        return page;
+    }
+
+    /**
+     * Descarta los comentarios y las páginas de los servicios indicados
+     */
+    public void invalidate(Collection<Long> commentIds, Collection<UUID> serviceUuids,
+            Collection<Long> serviceIdHashes) {
+        byId.invalidateAll(commentIds);
+        pagesByService.invalidateAll(serviceUuids);
+        pagesByService.invalidateAll(serviceIdHashes);
+    }
+}
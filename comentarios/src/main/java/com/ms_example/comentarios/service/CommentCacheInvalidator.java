@@ -0,0 +1,109 @@
+package com.ms_example.comentarios.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.context.annotation.Bean;
+import org.springframework.stereotype.Service;
+
+import com.ms_example.comentarios.dto.CommentInvalidationDTO;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Invalida las cachés de lectura de comentarios en esta réplica y avisa a las
+ * demás por el tópico comments-cache-invalidation.
+ *
+ * El binding de entrada no tiene grupo: cada réplica consume con un grupo
+ * anónimo propio y recibe todos los avisos desde que arranca. Una réplica que
+ * recibe un aviso también cambia la versión de los servicios afectados, para
+ * que sus ETags dejen de validar el contenido anterior.
+ */
+@Service
+@Slf4j
+public class CommentCacheInvalidator {
+
+    static final String INVALIDATION_BINDING = "commentInvalidation-out-0";
+
+    // Identifica a esta réplica en sus propios avisos
+    private final String origin = UUID.randomUUID().toString();
+    private final CommentCache commentCache;
+    private final ServiceVersions serviceVersions;
+    private final StreamBridge streamBridge;
+    private final Counter sent;
+    private final Counter sendFailed;
+    private final Counter received;
+
+    public CommentCacheInvalidator(CommentCache commentCache, ServiceVersions serviceVersions,
+            StreamBridge streamBridge, MeterRegistry meterRegistry) {
+        this.commentCache = commentCache;
+        this.serviceVersions = serviceVersions;
+        this.streamBridge = streamBridge;
+        this.sent = invalidationCounter(meterRegistry, "sent");
+        this.sendFailed = invalidationCounter(meterRegistry, "send-failed");
+        this.received = invalidationCounter(meterRegistry, "received");
+    }
+
+    private static Counter invalidationCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("comments.cache.invalidations")
+                .description("Avisos de invalidación entre réplicas, por resultado")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Invalida las cachés locales y avisa a las demás réplicas. Debe llamarse
+     * después del commit del cambio
+     */
+    public void invalidate(Collection<Long> commentIds, Collection<UUID> serviceUuids,
+            Collection<Long> serviceIdHashes) {
+        commentCache.invalidate(commentIds, serviceUuids, serviceIdHashes);
+
+        CommentInvalidationDTO invalidation = CommentInvalidationDTO.builder()
+                .origin(origin)
+                .commentIds(new ArrayList<>(commentIds))
+                .serviceUuids(new ArrayList<>(serviceUuids))
+                .serviceIdHashes(new ArrayList<>(serviceIdHashes))
+                .build();
+        try {
+            if (streamBridge.send(INVALIDATION_BINDING, invalidation)) {
+                sent.increment();
+                return;
+            }
+            log.warn("No se pudo publicar la invalidación de {} servicios", serviceUuids.size());
+        } catch (Exception e) {
+            log.warn("Error publicando la invalidación de {} servicios: {}", serviceUuids.size(), e.getMessage());
+        }
+        // Las demás réplicas conservan sus entradas hasta que venzan
+        sendFailed.increment();
+    }
+
+    /**
+     * Consumidor de los avisos de invalidación de las demás réplicas
+     */
+    @Bean
+    public Consumer<CommentInvalidationDTO> commentInvalidation() {
+        return this::apply;
+    }
+
+    void apply(CommentInvalidationDTO invalidation) {
+        if (invalidation == null || origin.equals(invalidation.getOrigin())) {
+            return;
+        }
+        received.increment();
+        List<UUID> serviceUuids = orEmpty(invalidation.getServiceUuids());
+        commentCache.invalidate(orEmpty(invalidation.getCommentIds()), serviceUuids,
+                orEmpty(invalidation.getServiceIdHashes()));
+        serviceUuids.forEach(serviceVersions::bump);
+    }
+
+    private static <T> List<T> orEmpty(List<T> values) {
+        return values != null ? values : List.of();
+    }
+}
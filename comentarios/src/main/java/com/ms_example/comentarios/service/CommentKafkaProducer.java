@@ -1,11 +1,18 @@
 package com.ms_example.comentarios.service;
 
+import java.util.concurrent.TimeUnit;
+
 import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.stereotype.Service;
 
 import com.ms_example.comentarios.dto.CommentResponseDTO;
 import com.ms_example.comentarios.model.Comment;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -13,49 +20,102 @@ import lombok.extern.slf4j.Slf4j;
  * servicios
  * Utiliza el tópico comments-response para publicar los comentarios
  * creados/actualizados
+ *
+ * Cada evento lleva como clave el UUID del servicio, así que todos los eventos
+ * de un servicio caen en la misma partición y se consumen en orden. Los
+ * comentarios heredados sin UUID usan el id hash del servicio.
  */
 @Service
 @Slf4j
 public class CommentKafkaProducer {
 
+    static final String COMMENT_RESPONSE_BINDING = "commentResponse-out-0";
+
     private final StreamBridge streamBridge;
+    // El conteo de cada timer da los envíos exitosos y fallidos
+    private final Timer publishSuccess;
+    private final Timer publishFailure;
 
-    public CommentKafkaProducer(StreamBridge streamBridge) {
+    public CommentKafkaProducer(StreamBridge streamBridge, MeterRegistry meterRegistry) {
         this.streamBridge = streamBridge;
+        this.publishSuccess = publishTimer(meterRegistry, "success");
+        this.publishFailure = publishTimer(meterRegistry, "failure");
+    }
+
+    private static Timer publishTimer(MeterRegistry meterRegistry, String result) {
+        return Timer.builder("comments.kafka.publish")
+                .description("Tiempo de publicación de eventos en comments-response, por resultado")
+                .tag("result", result)
+                .register(meterRegistry);
     }
 
     /**
-     * Publica un comentario al tópico de Kafka usando StreamBridge
+     * Construye el evento que se publica en comments-response para un
+     * comentario
      * 
-     * @param comment El comentario a publicar
+     * @param comment El comentario persistido
+     * @return El DTO del evento
      */
-    public void publishComment(Comment comment) {
-        try {
-            CommentResponseDTO dto = CommentResponseDTO.builder()
-                    .commentId(comment.getId())
-                    .serviceUuid(comment.getServiceUuid())
-                    .serviceIdHash(comment.getServiceIdHash())
-                    .profileId(comment.getProfileId())
-                    .rating(comment.getRating())
-                    .content(comment.getContent())
-                    .createdAt(comment.getCreatedAt())
-                    .build();
+    public CommentResponseDTO toCommentResponse(Comment comment) {
+        return CommentResponseDTO.builder()
+                .commentId(comment.getId())
+                .serviceUuid(comment.getServiceUuid() != null ? comment.getServiceUuid().toString() : null)
+                .serviceIdHash(comment.getServiceIdHash())
+                .profileId(comment.getProfileId())
+                .rating(comment.getRating())
+                .content(comment.getContent())
+                .createdAt(comment.getCreatedAt())
+                .build();
+    }
+
+    /**
+     * Publica un evento de comentario al tópico de Kafka usando StreamBridge
+     * 
+     * @param dto El evento a publicar
+     * @return true si el binder aceptó el mensaje
+     */
+    public boolean publishCommentResponse(CommentResponseDTO dto) {
+        long start = System.nanoTime();
+        boolean sent = send(dto);
+        (sent ? publishSuccess : publishFailure).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return sent;
+    }
 
-            log.info("Enviando comentario a Kafka - ID: {}, ServiceUUID: {}, ServiceIdHash: {}",
-                    comment.getId(), comment.getServiceUuid(), comment.getServiceIdHash());
+    private boolean send(CommentResponseDTO dto) {
+        try {
+            log.debug("Enviando comentario a Kafka - ID: {}, ServiceUUID: {}, ServiceIdHash: {}",
+                    dto.getCommentId(), dto.getServiceUuid(), dto.getServiceIdHash());
 
             // Enviar al binding commentResponse-out-0 configurado en application.yml
-            boolean sent = streamBridge.send("commentResponse-out-0", dto);
+            Message<CommentResponseDTO> message = MessageBuilder.withPayload(dto)
+                    .setHeader(KafkaHeaders.KEY, messageKey(dto))
+                    .build();
+            boolean sent = streamBridge.send(COMMENT_RESPONSE_BINDING, message);
 
             if (sent) {
-                log.info("Comentario publicado exitosamente al tópico comments-response");
+                log.debug("Comentario {} publicado exitosamente al tópico comments-response", dto.getCommentId());
             } else {
-                log.error("Fallo al publicar comentario al tópico comments-response");
+                log.error("Fallo al publicar comentario {} al tópico comments-response", dto.getCommentId());
             }
+            return sent;
 
         } catch (Exception e) {
-            log.error("Error inesperado al publicar comentario", e);
+            log.error("Error inesperado al publicar comentario {}", dto.getCommentId(), e);
+            return false;
+        }
+    }
+
+    /**
+     * Clave de partición del evento: el servicio al que pertenece el comentario
+     */
+    static String messageKey(CommentResponseDTO dto) {
+        if (dto.getServiceUuid() != null) {
+            return dto.getServiceUuid();
+        }
+        if (dto.getServiceIdHash() != null) {
+            return String.valueOf(dto.getServiceIdHash());
         }
+        return String.valueOf(dto.getCommentId());
     }
 
 }
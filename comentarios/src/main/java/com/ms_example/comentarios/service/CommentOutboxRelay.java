@@ -0,0 +1,150 @@
+package com.ms_example.comentarios.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ms_example.comentarios.dto.CommentResponseDTO;
+import com.ms_example.comentarios.model.CommentOutboxEvent;
+import com.ms_example.comentarios.repository.CommentOutboxRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Publica en segundo plano los eventos pendientes de la tabla outbox hacia
+ * commentResponse-out-0. Envía por lotes en orden de id y se detiene en el
+ * primer fallo para conservar el orden; el evento fallido se reintenta en la
+ * siguiente ejecución. La entrega es al menos una vez: el binding es síncrono
+ * y un evento se marca publicado solo después del ack del broker.
+ *
+ * Un evento que no se puede leer, o que falla max-attempts veces, se aparta
+ * (parked_at) y se cuenta en comments.outbox.parked para que no bloquee a los
+ * siguientes.
+ */
+@Service
+@Slf4j
+public class CommentOutboxRelay {
+
+    private final CommentOutboxRepository outboxRepository;
+    private final CommentKafkaProducer commentKafkaProducer;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long retentionMinutes;
+    private final Counter parkedUnreadable;
+    private final Counter parkedMaxAttempts;
+
+    private enum Result {
+        PUBLISHED, FAILED, UNREADABLE
+    }
+
+    public CommentOutboxRelay(CommentOutboxRepository outboxRepository, CommentKafkaProducer commentKafkaProducer,
+            ObjectMapper objectMapper, TransactionTemplate transactionTemplate, MeterRegistry meterRegistry,
+            @Value("${comments.outbox.batch-size:100}") int batchSize,
+            @Value("${comments.outbox.max-attempts:20}") int maxAttempts,
+            @Value("${comments.outbox.retention-minutes:60}") long retentionMinutes) {
+        this.outboxRepository = outboxRepository;
+        this.commentKafkaProducer = commentKafkaProducer;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.retentionMinutes = retentionMinutes;
+        this.parkedUnreadable = parkedCounter(meterRegistry, "unreadable");
+        this.parkedMaxAttempts = parkedCounter(meterRegistry, "max-attempts");
+    }
+
+    private static Counter parkedCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("comments.outbox.parked")
+                .description("Eventos del outbox apartados sin publicar, por motivo")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Publica lotes mientras haya eventos pendientes; cada lote usa su propia
+     * transacción
+     */
+    @Scheduled(fixedDelayString = "${comments.outbox.relay-interval-ms:500}")
+    public void relayPending() {
+        Integer processed;
+        do {
+            processed = transactionTemplate.execute(status -> relayBatch());
+        } while (processed != null && processed == batchSize);
+    }
+
+    /**
+     * Elimina los eventos ya publicados que superan el tiempo de retención
+     */
+    @Scheduled(fixedDelayString = "${comments.outbox.cleanup-interval-ms:60000}")
+    public void purgePublished() {
+        Integer deleted = transactionTemplate.execute(status -> outboxRepository
+                .deletePublishedBefore(LocalDateTime.now().minusMinutes(retentionMinutes)));
+        if (deleted != null && deleted > 0) {
+            log.debug("{} eventos publicados eliminados del outbox", deleted);
+        }
+    }
+
+    /**
+     * Publica un lote y devuelve cuántos eventos salieron de pendientes
+     * (publicados o apartados)
+     */
+    private int relayBatch() {
+        List<CommentOutboxEvent> batch = outboxRepository
+                .findByPublishedAtIsNullAndParkedAtIsNullOrderByIdAsc(PageRequest.of(0, batchSize));
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        List<Long> publishedIds = new ArrayList<>(batch.size());
+        int parked = 0;
+        for (CommentOutboxEvent event : batch) {
+            Result result = publish(event);
+            if (result == Result.PUBLISHED) {
+                publishedIds.add(event.getId());
+                continue;
+            }
+            int attempt = event.getAttempts() + 1;
+            if (result == Result.UNREADABLE || attempt >= maxAttempts) {
+                // Un evento que nunca se va a poder publicar no debe detener a los demás
+                outboxRepository.park(event.getId(), LocalDateTime.now());
+                (result == Result.UNREADABLE ? parkedUnreadable : parkedMaxAttempts).increment();
+                log.error("Evento {} del comentario {} apartado sin publicar tras {} intentos",
+                        event.getId(), event.getCommentId(), attempt);
+                parked++;
+                continue;
+            }
+            outboxRepository.incrementAttempts(event.getId());
+            log.warn("No se pudo publicar el evento {} del comentario {} (intento {}), se reintentará",
+                    event.getId(), event.getCommentId(), attempt);
+            break;
+        }
+
+        if (!publishedIds.isEmpty()) {
+            outboxRepository.markPublished(publishedIds, LocalDateTime.now());
+            log.info("{} eventos de comentarios publicados a comments-response", publishedIds.size());
+        }
+        return publishedIds.size() + parked;
+    }
+
+    private Result publish(CommentOutboxEvent event) {
+        CommentResponseDTO dto;
+        try {
+            dto = objectMapper.readValue(event.getPayload(), CommentResponseDTO.class);
+        } catch (Exception e) {
+            log.error("Error leyendo el evento {} del outbox: {}", event.getId(), e.getMessage());
+            return Result.UNREADABLE;
+        }
+        return commentKafkaProducer.publishCommentResponse(dto) ? Result.PUBLISHED : Result.FAILED;
+    }
+}
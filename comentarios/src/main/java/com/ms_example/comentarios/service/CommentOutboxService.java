@@ -0,0 +1,66 @@
+package com.ms_example.comentarios.service;
+
+import java.util.List;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ms_example.comentarios.dto.CommentResponseDTO;
+import com.ms_example.comentarios.model.Comment;
+import com.ms_example.comentarios.model.CommentOutboxEvent;
+import com.ms_example.comentarios.repository.CommentOutboxRepository;
+
+/**
+ * Registra los eventos de comentarios en la tabla outbox. Debe llamarse dentro
+ * de la transacción que guarda el comentario, para que el evento exista si y
+ * solo si el comentario se confirmó.
+ */
+@Service
+public class CommentOutboxService {
+
+    private final CommentOutboxRepository outboxRepository;
+    private final CommentKafkaProducer commentKafkaProducer;
+    private final ObjectMapper objectMapper;
+
+    public CommentOutboxService(CommentOutboxRepository outboxRepository, CommentKafkaProducer commentKafkaProducer,
+            ObjectMapper objectMapper) {
+        this.outboxRepository = outboxRepository;
+        this.commentKafkaProducer = commentKafkaProducer;
+        this.objectMapper = objectMapper;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(Comment comment) {
+        outboxRepository.save(toEvent(comment));
+    }
+
+    /**
+     * Registra los eventos de varios comentarios; los INSERT se agrupan en
+     * lotes JDBC
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueueAll(List<Comment> comments) {
+        outboxRepository.saveAll(comments.stream().map(this::toEvent).toList());
+    }
+
+    private CommentOutboxEvent toEvent(Comment comment) {
+        CommentResponseDTO dto = commentKafkaProducer.toCommentResponse(comment);
+
+        CommentOutboxEvent event = new CommentOutboxEvent();
+        event.setCommentId(comment.getId());
+        event.setServiceUuid(comment.getServiceUuid());
+        event.setPayload(serialize(dto));
+        return event;
+    }
+
+    private String serialize(CommentResponseDTO dto) {
+        try {
+            return objectMapper.writeValueAsString(dto);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar el evento del comentario " + dto.getCommentId(), e);
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package com.ms_example.comentarios.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.es.SpanishAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.simple.SimpleQueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.ms_example.comentarios.model.Comment;
+import com.ms_example.comentarios.repository.CommentRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Índice invertido (Lucene) sobre el contenido de los comentarios, con
+ * análisis en español (minúsculas, stopwords y stemming).
+ *
+ * Se mantiene de forma incremental con cada alta, edición y borrado. Los
+ * cambios se vuelven visibles para las búsquedas en cada refresco periódico
+ * y se confirman a los archivos de segmentos en disco cada cierto tiempo y al
+ * apagar. Cada commit guarda en sus datos de usuario si el índice se cerró
+ * ordenadamente y el mayor id de comentario en ese momento: tras una caída
+ * (cambios de los últimos segundos perdidos) o si la tabla de comentarios no
+ * coincide, al iniciar se reconstruye desde la base de datos.
+ */
+@Service
+@Slf4j
+public class CommentSearchIndex {
+
+    static final String ID_FIELD = "id";
+    static final String SERVICE_UUID_FIELD = "serviceUuid";
+    static final String CONTENT_FIELD = "content";
+    // Claves de los datos de usuario de cada commit del índice
+    static final String CLEAN_SHUTDOWN_KEY = "cleanShutdown";
+    static final String MAX_COMMENT_ID_KEY = "maxCommentId";
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    private final CommentRepository commentRepository;
+    private final Analyzer analyzer = new SpanishAnalyzer();
+    private final Directory directory;
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
+    // Un cambio que no se pudo indexar: el índice ya no refleja la base de datos
+    private final AtomicBoolean diverged = new AtomicBoolean();
+
+    public CommentSearchIndex(CommentRepository commentRepository,
+            @Value("${comments.search.index-path:data/search-index}") String indexPath) throws IOException {
+        this.commentRepository = commentRepository;
+        // Sin ruta el índice vive solo en memoria
+        this.directory = indexPath.isBlank() ? new ByteBuffersDirectory() : FSDirectory.open(Path.of(indexPath));
+        this.writer = new IndexWriter(directory, new IndexWriterConfig(analyzer)
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND));
+        this.searcherManager = new SearcherManager(writer, null);
+    }
+
+    /**
+     * Reconstruye el índice si no refleja la tabla de comentarios: primer
+     * arranque, caída sin cierre ordenado (el último commit puede no incluir
+     * las ediciones y borrados más recientes), índice corrupto o base de datos
+     * distinta
+     */
+    @PostConstruct
+    public void reconcile() throws IOException {
+        Map<String, String> commitData = committedData();
+        long indexed = writer.getDocStats().numDocs;
+        long stored = commentRepository.count();
+        String maxId = String.valueOf(commentRepository.findMaxId());
+        if (Boolean.parseBoolean(commitData.get(CLEAN_SHUTDOWN_KEY)) && indexed == stored
+                && maxId.equals(commitData.get(MAX_COMMENT_ID_KEY))) {
+            log.info("Índice de búsqueda cargado con {} comentarios", indexed);
+        } else {
+            log.info("Índice de búsqueda desactualizado ({} documentos, {} comentarios, datos del commit {});"
+                    + " reconstruyendo", indexed, stored, commitData);
+            rebuild();
+        }
+        // Hasta el próximo cierre ordenado el índice en disco puede quedar
+        // atrás de la base de datos
+        writer.setLiveCommitData(Map.of(CLEAN_SHUTDOWN_KEY, "false").entrySet());
+        writer.commit();
+        searcherManager.maybeRefreshBlocking();
+    }
+
+    private void rebuild() throws IOException {
+        writer.deleteAll();
+        long afterId = Long.MIN_VALUE;
+        List<Comment> batch;
+        do {
+            batch = commentRepository.findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.of(0, REBUILD_BATCH_SIZE));
+            for (Comment comment : batch) {
+                writer.addDocument(toDocument(comment));
+            }
+            if (!batch.isEmpty()) {
+                afterId = batch.get(batch.size() - 1).getId();
+            }
+        } while (batch.size() == REBUILD_BATCH_SIZE);
+        log.info("Índice de búsqueda reconstruido con {} comentarios", writer.getDocStats().numDocs);
+    }
+
+    /**
+     * Indexa un comentario nuevo o reemplaza la versión indexada de uno
+     * existente
+     */
+    public void index(Comment comment) {
+        try {
+            writer.updateDocument(idTerm(comment.getId()), toDocument(comment));
+        } catch (IOException e) {
+            diverged.set(true);
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            diverged.set(true);
+            throw e;
+        }
+    }
+
+    public void remove(Long commentId) {
+        try {
+            writer.deleteDocuments(idTerm(commentId));
+        } catch (IOException e) {
+            diverged.set(true);
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            diverged.set(true);
+            throw e;
+        }
+    }
+
+    /**
+     * Busca comentarios por texto, opcionalmente dentro de un servicio
+     *
+     * @param text        Términos a buscar; admite la sintaxis simple de Lucene
+     *                    (frases entre comillas, -exclusión, prefijo*)
+     * @param serviceUuid Servicio al que se limita la búsqueda, o null
+     * @param limit       Máximo de resultados
+     * @return Ids de los comentarios, del más relevante al menos relevante
+     */
+    public List<Long> search(String text, UUID serviceUuid, int limit) {
+        SimpleQueryParser parser = new SimpleQueryParser(analyzer, CONTENT_FIELD);
+        parser.setDefaultOperator(BooleanClause.Occur.MUST);
+        Query textQuery = parser.parse(text);
+        if (textQuery == null) {
+            // Solo stopwords o símbolos: no hay nada que buscar
+            return List.of();
+        }
+        BooleanQuery.Builder query = new BooleanQuery.Builder().add(textQuery, BooleanClause.Occur.MUST);
+        if (serviceUuid != null) {
+            query.add(new TermQuery(new Term(SERVICE_UUID_FIELD, serviceUuid.toString())), BooleanClause.Occur.FILTER);
+        }
+
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                ScoreDoc[] hits = searcher.search(query.build(), limit).scoreDocs;
+                StoredFields storedFields = searcher.storedFields();
+                List<Long> ids = new ArrayList<>(hits.length);
+                for (ScoreDoc hit : hits) {
+                    ids.add(storedFields.document(hit.doc).getField(ID_FIELD).numericValue().longValue());
+                }
+                return ids;
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Hace visibles para las búsquedas los cambios indexados
+     */
+    @Scheduled(fixedDelayString = "${comments.search.refresh-interval-ms:1000}")
+    public void refresh() throws IOException {
+        searcherManager.maybeRefresh();
+    }
+
+    /**
+     * Confirma los cambios en los archivos de segmentos
+     */
+    @Scheduled(fixedDelayString = "${comments.search.commit-interval-ms:30000}")
+    public void commit() throws IOException {
+        if (writer.hasUncommittedChanges()) {
+            writer.commit();
+        }
+    }
+
+    /**
+     * Confirma los cambios pendientes marcando el cierre como ordenado, para
+     * que el próximo arranque reutilice el índice en vez de reconstruirlo
+     */
+    @PreDestroy
+    public void close() throws IOException {
+        try {
+            if (!diverged.get()) {
+                writer.setLiveCommitData(Map.of(CLEAN_SHUTDOWN_KEY, "true",
+                        MAX_COMMENT_ID_KEY, String.valueOf(commentRepository.findMaxId())).entrySet());
+            }
+        } catch (RuntimeException e) {
+            log.warn("No se pudo leer el mayor id de comentario; el índice se reconstruirá al iniciar", e);
+        }
+        searcherManager.close();
+        writer.close();
+        directory.close();
+    }
+
+    private Map<String, String> committedData() {
+        Map<String, String> data = new HashMap<>();
+        Iterable<Map.Entry<String, String>> commitData = writer.getLiveCommitData();
+        if (commitData != null) {
+            commitData.forEach(entry -> data.put(entry.getKey(), entry.getValue()));
+        }
+        return data;
+    }
+
+    private static Term idTerm(Long commentId) {
+        return new Term(ID_FIELD, commentId.toString());
+    }
+
+    private static Document toDocument(Comment comment) {
+        Document document = new Document();
+        document.add(new StringField(ID_FIELD, comment.getId().toString(), Field.Store.NO));
+        document.add(new StoredField(ID_FIELD, comment.getId()));
+        if (comment.getServiceUuid() != null) {
+            document.add(new StringField(SERVICE_UUID_FIELD, comment.getServiceUuid().toString(), Field.Store.NO));
+        }
+        if (comment.getContent() != null) {
+            document.add(new TextField(CONTENT_FIELD, comment.getContent(), Field.Store.NO));
+        }
+        return document;
+    }
+}
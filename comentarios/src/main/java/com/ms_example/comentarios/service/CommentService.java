@@ -1,15 +1,46 @@
 package com.ms_example.comentarios.service;
 
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.ms_example.comentarios.dto.BatchCommentResponseDTO;
+import com.ms_example.comentarios.dto.BatchCommentResultDTO;
+import com.ms_example.comentarios.dto.CommentCursor;
+import com.ms_example.comentarios.dto.CommentPage;
+import com.ms_example.comentarios.dto.CommentSort;
+import com.ms_example.comentarios.dto.CommentView;
 import com.ms_example.comentarios.dto.CreateCommentDTO;
 import com.ms_example.comentarios.dto.ServiceResponseDTO;
 import com.ms_example.comentarios.model.Comment;
 import com.ms_example.comentarios.repository.CommentRepository;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import lombok.extern.slf4j.Slf4j;
 
 @Service
@@ -17,50 +48,210 @@ import lombok.extern.slf4j.Slf4j;
 public class CommentService {
 
     private final CommentRepository commentRepository;
-    private final CommentKafkaProducer commentKafkaProducer;
+    private final CommentOutboxService commentOutboxService;
+    private final RatingSummaryService ratingSummaryService;
+    private final ServiceCatalog serviceCatalog;
+    private final ServiceVersions serviceVersions;
+    private final CommentSearchIndex commentSearchIndex;
+    private final ServiceLeaderboard serviceLeaderboard;
+    private final CommentCache commentCache;
+    private final CommentCacheInvalidator commentCacheInvalidator;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxBatchSize;
+    // Inserciones individuales agrupadas en una transacción por lote; null si
+    // comments.group-commit.enabled es false
+    private final GroupCommitter<Comment, Comment> groupCommitter;
+    private final Duration groupCommitAwaitTimeout;
 
-    public CommentService(CommentRepository commentRepository, CommentKafkaProducer commentKafkaProducer) {
+    // Tiempo de save/saveAll; con ids de secuencia el INSERT se ejecuta al hacer
+    // flush en el commit, así que mide la parte del repositorio (id, persist)
+    private final Timer saveTimer;
+    private final Timer saveAllTimer;
+
+    public CommentService(CommentRepository commentRepository, CommentOutboxService commentOutboxService,
+            RatingSummaryService ratingSummaryService, ServiceCatalog serviceCatalog,
+            ServiceVersions serviceVersions, CommentSearchIndex commentSearchIndex,
+            ServiceLeaderboard serviceLeaderboard, CommentCache commentCache,
+            CommentCacheInvalidator commentCacheInvalidator, Validator validator,
+            PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+            @Value("${comments.batch.max-size:5000}") int maxBatchSize,
+            @Value("${comments.group-commit.enabled:false}") boolean groupCommitEnabled,
+            @Value("${comments.group-commit.max-batch-size:200}") int groupCommitMaxBatchSize,
+            @Value("${comments.group-commit.max-delay:2ms}") Duration groupCommitMaxDelay,
+            @Value("${comments.group-commit.max-pending:10000}") int groupCommitMaxPending,
+            @Value("${comments.group-commit.await-timeout:30s}") Duration groupCommitAwaitTimeout) {
         this.commentRepository = commentRepository;
-        this.commentKafkaProducer = commentKafkaProducer;
+        this.commentOutboxService = commentOutboxService;
+        this.ratingSummaryService = ratingSummaryService;
+        this.serviceCatalog = serviceCatalog;
+        this.serviceVersions = serviceVersions;
+        this.commentSearchIndex = commentSearchIndex;
+        this.serviceLeaderboard = serviceLeaderboard;
+        this.commentCache = commentCache;
+        this.commentCacheInvalidator = commentCacheInvalidator;
+        this.validator = validator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxBatchSize = maxBatchSize;
+        this.saveTimer = saveTimer(meterRegistry, "save");
+        this.saveAllTimer = saveTimer(meterRegistry, "saveAll");
+        this.groupCommitter = groupCommitEnabled
+                ? new GroupCommitter<>("comments-group-commit", groupCommitMaxBatchSize, groupCommitMaxDelay,
+                        groupCommitMaxPending, this::insertGroup, meterRegistry)
+                : null;
+        this.groupCommitAwaitTimeout = groupCommitAwaitTimeout;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (groupCommitter != null) {
+            groupCommitter.close();
+        }
     }
 
-    public List<Comment> getAllComments() {
-        return commentRepository.findAll();
+    private static Timer saveTimer(MeterRegistry meterRegistry, String operation) {
+        return Timer.builder("comments.repository.save")
+                .description("Tiempo de guardado de comentarios en el repositorio")
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+
+    // Las lecturas usan transacciones de solo lectura y proyecciones (CommentView):
+    // Hibernate no administra entidades ni hace flush, y el driver puede
+    // optimizar la conexión para lectura. Las lecturas con caché no abren la
+    // transacción aquí sino en el repositorio, solo cuando hay que ir a la base
+
+    @Transactional(readOnly = true)
+    public List<CommentView> getAllComments() {
+        return commentRepository.findAllViews();
     }
 
-    public Comment getCommentsById(Long id) {
-        return commentRepository.findById(id).orElse(null);
+    public CommentView getCommentsById(Long id) {
+        return commentCache.getById(id, key -> commentRepository.findViewById(key).orElse(null));
     }
 
-    public List<Comment> getCommentByServiceId(Long serviceId) {
-        return commentRepository.findByServiceIdHash(serviceId);
+    /**
+     * Obtiene una página de comentarios de un servicio por su UUID usando
+     * paginación keyset
+     *
+     * @param serviceUuid UUID del servicio
+     * @param sort        Ordenamiento de la página
+     * @param after       Cursor de la página anterior, null para la primera
+     * @param limit       Tamaño máximo de la página
+     */
+    public CommentPage getCommentPageByServiceUuid(UUID serviceUuid, CommentSort sort, CommentCursor after,
+            int limit) {
+        // Se pide un elemento extra para saber si existe una página siguiente
+        Supplier<CommentPage> loader = () -> toPage(
+                commentRepository.findPageByServiceUuid(serviceUuid, sort, after, limit + 1), sort, limit);
+        return after == null ? commentCache.firstPageByServiceUuid(serviceUuid, sort, limit, loader) : loader.get();
+    }
+
+    /**
+     * Obtiene una página de comentarios de un servicio por el id (hash)
+     * heredado usando paginación keyset
+     *
+     * @param serviceId Id (hash) del servicio
+     * @param sort      Ordenamiento de la página
+     * @param after     Cursor de la página anterior, null para la primera
+     * @param limit     Tamaño máximo de la página
+     */
+    public CommentPage getCommentPageByServiceId(Long serviceId, CommentSort sort, CommentCursor after, int limit) {
+        Supplier<CommentPage> loader = () -> toPage(
+                commentRepository.findPageByServiceIdHash(serviceId, sort, after, limit + 1), sort, limit);
+        return after == null ? commentCache.firstPageByServiceIdHash(serviceId, sort, limit, loader) : loader.get();
     }
 
-    public List<Comment> getCommentByProfileId(Long profileId) {
-        return commentRepository.findByProfileId(profileId);
+    /**
+     * Obtiene una página de comentarios de un perfil usando paginación keyset
+     */
+    @Transactional(readOnly = true)
+    public CommentPage getCommentPageByProfileId(Long profileId, CommentSort sort, CommentCursor after, int limit) {
+        return toPage(commentRepository.findPageByProfileId(profileId, sort, after, limit + 1), sort, limit);
+    }
+
+    /**
+     * Busca comentarios por texto en el índice de búsqueda
+     *
+     * @param text        Términos a buscar
+     * @param serviceUuid Servicio al que se limita la búsqueda, o null
+     * @param limit       Máximo de resultados
+     * @return Los comentarios, del más relevante al menos relevante
+     */
+    @Transactional(readOnly = true)
+    public List<CommentView> searchComments(String text, UUID serviceUuid, int limit) {
+        List<Long> ids = commentSearchIndex.search(text, serviceUuid, limit);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, CommentView> byId = new HashMap<>();
+        for (CommentView comment : commentRepository.findViewsByIdIn(ids)) {
+            byId.put(comment.id(), comment);
+        }
+        // Conservar el orden de relevancia; un id ya borrado pero aún visible en el índice se omite
+        List<CommentView> results = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            CommentView comment = byId.get(id);
+            if (comment != null) {
+                results.add(comment);
+            }
+        }
+        return results;
+    }
+
+    private CommentPage toPage(List<CommentView> comments, CommentSort sort, int limit) {
+        if (comments.size() <= limit) {
+            return new CommentPage(comments, null);
+        }
+        List<CommentView> items = comments.subList(0, limit);
+        return new CommentPage(items, CommentCursor.after(sort, items.get(limit - 1)).encode());
     }
 
     public Comment createComment(Comment comment) {
-        Comment savedComment = commentRepository.save(comment);
-        // Publicar comentario a Kafka
-        commentKafkaProducer.publishComment(savedComment);
-        return savedComment;
+        return insert(comment);
     }
 
+    @Transactional
     public Comment updateComment(Long id, Comment updatedComment) {
-        if (commentRepository.existsById(id)) {
+        Comment existing = commentRepository.findById(id).orElse(null);
+        if (existing != null) {
+            // Guardar los valores previos antes de que save los sobrescriba
+            UUID previousServiceUuid = existing.getServiceUuid();
+            BigDecimal previousRating = existing.getRating();
+            Comment previousOwner = new Comment();
+            previousOwner.setServiceUuid(previousServiceUuid);
+            previousOwner.setServiceIdHash(existing.getServiceIdHash());
+
             updatedComment.setId(id);
-            Comment savedComment = commentRepository.save(updatedComment);
-            // Publicar comentario actualizado a Kafka
-            commentKafkaProducer.publishComment(savedComment);
+            Comment savedComment = saveTimer.record(() -> commentRepository.save(updatedComment));
+            // Registrar el evento del comentario actualizado en la misma transacción
+            commentOutboxService.enqueue(savedComment);
+            afterCommit(() -> {
+                invalidateCaches(List.of(id), List.of(previousOwner, savedComment));
+                ratingSummaryService.onCommentUpdated(previousServiceUuid, previousRating, savedComment);
+                serviceVersions.bump(previousServiceUuid);
+                serviceVersions.bump(savedComment.getServiceUuid());
+                commentSearchIndex.index(savedComment);
+                serviceLeaderboard.onRatingsChanged(previousServiceUuid);
+                serviceLeaderboard.onRatingsChanged(savedComment.getServiceUuid());
+            });
             return savedComment;
         }
         return null;
     }
 
+    @Transactional
     public boolean deleteComment(Long id) {
-        if (commentRepository.existsById(id)) {
-            commentRepository.deleteById(id);
+        Comment existing = commentRepository.findById(id).orElse(null);
+        if (existing != null) {
+            commentRepository.delete(existing);
+            afterCommit(() -> {
+                invalidateCaches(List.of(id), List.of(existing));
+                ratingSummaryService.onCommentDeleted(existing.getServiceUuid(), existing.getRating());
+                serviceVersions.bump(existing.getServiceUuid());
+                commentSearchIndex.remove(existing.getId());
+                serviceLeaderboard.onRatingsChanged(existing.getServiceUuid());
+            });
             return true;
         }
         return false;
@@ -75,10 +266,22 @@ public class CommentService {
      * @throws IllegalArgumentException si el servicio no existe en la cola
      */
     public Comment createCommentForKafkaService(CreateCommentDTO commentDTO) {
+        return createCommentForKafkaService(commentDTO, serviceCatalog.get(commentDTO.getServiceId()));
+    }
+
+    /**
+     * Crea un comentario para un servicio ya resuelto (por ejemplo, con la
+     * lectura a través de ServiceLookupService)
+     * 
+     * @param commentDTO DTO con los datos del comentario
+     * @param service    El servicio, o null si no existe
+     * @return El comentario creado
+     * @throws IllegalArgumentException si el servicio no existe o no está activo
+     */
+    public Comment createCommentForKafkaService(CreateCommentDTO commentDTO, ServiceResponseDTO service) {
         UUID serviceUUID = commentDTO.getServiceId();
 
         // Validar que el servicio existe en la cola de Kafka
-        ServiceResponseDTO service = ServiceKafkaConsumer.getServiceById(serviceUUID);
         if (service == null) {
             log.error("Intento de crear comentario para servicio inexistente: {}", serviceUUID);
             throw new IllegalArgumentException(
@@ -98,26 +301,267 @@ public class CommentService {
 
         log.info("Creando comentario para servicio: {} - {}", service.getServiceId(), service.getName());
 
-        // Convertir UUID a Long (usando hashCode como estrategia simple)
-        // Nota: En producción considera una mejor estrategia de mapeo
-        Long serviceLongId = Math.abs((long) serviceUUID.hashCode());
+        Comment savedComment = insert(toComment(commentDTO));
+        log.info("Comentario creado exitosamente con ID: {} para servicio: {}",
+                savedComment.getId(), service.getName());
+        return savedComment;
+    }
+
+    /**
+     * Inserta un comentario nuevo. Con group commit activo, y si no hay una
+     * transacción en curso, lo escribe el agrupador junto con las demás
+     * inserciones concurrentes y se espera su commit; si no, o si la cola del
+     * agrupador está llena, se escribe en su propia transacción
+     */
+    private Comment insert(Comment comment) {
+        if (groupCommitter != null && !TransactionSynchronizationManager.isActualTransactionActive()) {
+            CompletableFuture<Comment> saved = groupCommitter.submit(comment);
+            if (saved != null) {
+                return await(saved);
+            }
+        }
+        return transactionTemplate.execute(status -> {
+            Comment savedComment = saveTimer.record(() -> commentRepository.save(comment));
+            // Registrar el evento para Kafka en la misma transacción
+            commentOutboxService.enqueue(savedComment);
+            afterCommit(() -> {
+                invalidateCaches(List.of(), List.of(savedComment));
+                onCommentCreated(savedComment);
+            });
+            return savedComment;
+        });
+    }
+
+    /**
+     * Escribe un lote del agrupador en una transacción, igual que
+     * createCommentsBatch: lotes JDBC, eventos en el outbox y un solo aviso de
+     * invalidación
+     */
+    private List<Comment> insertGroup(List<Comment> comments) {
+        AtomicReference<List<Comment>> committed = new AtomicReference<>();
+        try {
+            return transactionTemplate.execute(status -> {
+                List<Comment> saved = saveAllTimer.record(() -> commentRepository.saveAll(comments));
+                commentOutboxService.enqueueAll(saved);
+                afterCommit(() -> committed.set(saved));
+                afterCommit(() -> {
+                    invalidateCaches(List.of(), saved);
+                    saved.forEach(this::onCommentCreated);
+                });
+                return saved;
+            });
+        } catch (RuntimeException e) {
+            if (committed.get() != null) {
+                // Los comentarios y sus eventos ya están confirmados: reintentarlos
+                // los duplicaría
+                log.error("Error después del commit de un lote de {} comentarios: {}",
+                        comments.size(), e.getMessage(), e);
+                return committed.get();
+            }
+            // El rollback no devuelve los ids asignados; al reintentar cada
+            // comentario debe insertarse como nuevo
+            comments.forEach(comment -> comment.setId(null));
+            throw e;
+        }
+    }
+
+    /**
+     * Espera el commit del lote del comentario. Si vence el plazo y el
+     * agrupador aún no lo tomó, se cancela para que no se escriba después de
+     * reportar el error; si ya se está escribiendo, se espera su commit
+     */
+    private Comment await(CompletableFuture<Comment> saved) {
+        try {
+            try {
+                return saved.get(groupCommitAwaitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (saved.cancel(false)) {
+                    throw new IllegalStateException("El comentario no se escribió en "
+                            + groupCommitAwaitTimeout.toMillis() + " ms y se descartó", e);
+                }
+                return saved.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Error escribiendo el comentario", e.getCause());
+        } catch (InterruptedException e) {
+            saved.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrumpido esperando la escritura del comentario", e);
+        }
+    }
+
+    /**
+     * Crea un lote de comentarios para servicios del catálogo. Cada elemento se
+     * valida por separado; los válidos se insertan en una sola transacción con
+     * lotes JDBC y sus eventos se registran en el outbox en la misma
+     * transacción, para que el relay los publique en lote
+     *
+     * @param commentDTOs Comentarios a crear
+     * @return El resultado de cada elemento, en el orden recibido
+     * @throws IllegalArgumentException si el lote está vacío o supera el máximo
+     */
+    @Transactional
+    public BatchCommentResponseDTO createCommentsBatch(List<CreateCommentDTO> commentDTOs) {
+        if (commentDTOs == null || commentDTOs.isEmpty()) {
+            throw new IllegalArgumentException("El lote de comentarios está vacío");
+        }
+        if (commentDTOs.size() > maxBatchSize) {
+            throw new IllegalArgumentException(
+                    "El lote tiene " + commentDTOs.size() + " comentarios; el máximo es " + maxBatchSize);
+        }
+
+        BatchCommentResultDTO[] results = new BatchCommentResultDTO[commentDTOs.size()];
+        List<Comment> accepted = new ArrayList<>();
+        List<Integer> acceptedIndexes = new ArrayList<>();
+        // Cada servicio se busca una sola vez en el catálogo
+        Map<UUID, ServiceResponseDTO> services = new HashMap<>();
+
+        for (int i = 0; i < commentDTOs.size(); i++) {
+            CreateCommentDTO commentDTO = commentDTOs.get(i);
+            BatchCommentResultDTO rejection = validateForBatch(i, commentDTO, services);
+            if (rejection != null) {
+                results[i] = rejection;
+            } else {
+                accepted.add(toComment(commentDTO));
+                acceptedIndexes.add(i);
+            }
+        }
+
+        List<Comment> saved = saveAllTimer.record(() -> commentRepository.saveAll(accepted));
+        commentOutboxService.enqueueAll(saved);
+        afterCommit(() -> {
+            // Un solo aviso de invalidación para todo el lote
+            invalidateCaches(List.of(), saved);
+            saved.forEach(this::onCommentCreated);
+        });
+
+        for (int i = 0; i < saved.size(); i++) {
+            int index = acceptedIndexes.get(i);
+            results[index] = BatchCommentResultDTO.builder()
+                    .index(index)
+                    .status(BatchCommentResultDTO.Status.CREATED)
+                    .commentId(saved.get(i).getId())
+                    .build();
+        }
+
+        log.info("Lote de {} comentarios procesado: {} creados, {} rechazados",
+                commentDTOs.size(), saved.size(), commentDTOs.size() - saved.size());
+        return BatchCommentResponseDTO.builder()
+                .created(saved.size())
+                .rejected(commentDTOs.size() - saved.size())
+                .results(List.of(results))
+                .build();
+    }
+
+    /**
+     * Valida un elemento del lote; devuelve su rechazo o null si es válido
+     */
+    private BatchCommentResultDTO validateForBatch(int index, CreateCommentDTO commentDTO,
+            Map<UUID, ServiceResponseDTO> services) {
+        if (commentDTO == null) {
+            return rejection(index, BatchCommentResultDTO.Status.INVALID, "El comentario es requerido");
+        }
+        Set<ConstraintViolation<CreateCommentDTO>> violations = validator.validate(commentDTO);
+        if (!violations.isEmpty()) {
+            return BatchCommentResultDTO.builder()
+                    .index(index)
+                    .status(BatchCommentResultDTO.Status.INVALID)
+                    .errors(violations.stream()
+                            .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                            .sorted()
+                            .toList())
+                    .build();
+        }
+
+        ServiceResponseDTO service = services.computeIfAbsent(commentDTO.getServiceId(), serviceCatalog::get);
+        if (service == null) {
+            return rejection(index, BatchCommentResultDTO.Status.SERVICE_NOT_FOUND,
+                    "El servicio con ID " + commentDTO.getServiceId() + " no existe en la cola de servicios");
+        }
+        if (service.getIsActive() != null && !service.getIsActive()) {
+            return rejection(index, BatchCommentResultDTO.Status.SERVICE_INACTIVE,
+                    "El servicio con ID " + commentDTO.getServiceId() + " no está activo");
+        }
+        return null;
+    }
+
+    private static BatchCommentResultDTO rejection(int index, BatchCommentResultDTO.Status status, String error) {
+        return BatchCommentResultDTO.builder()
+                .index(index)
+                .status(status)
+                .errors(List.of(error))
+                .build();
+    }
+
+    private static Comment toComment(CreateCommentDTO commentDTO) {
+        UUID serviceUUID = commentDTO.getServiceId();
 
-        // Crear el comentario
         Comment comment = new Comment();
-        comment.setServiceUuid(serviceUUID.toString());
-        comment.setServiceIdHash(serviceLongId);
+        comment.setServiceUuid(serviceUUID);
+        // Id numérico heredado, solo se conserva por compatibilidad con los
+        // consumidores de comments-response. Puede colisionar entre servicios:
+        // las búsquedas por servicio usan la columna service_uuid.
+        comment.setServiceIdHash(Math.abs((long) serviceUUID.hashCode()));
         comment.setProfileId(commentDTO.getProfileId());
         comment.setRating(commentDTO.getRating());
         comment.setContent(commentDTO.getContent());
+        return comment;
+    }
 
-        Comment savedComment = commentRepository.save(comment);
-        log.info("Comentario creado exitosamente con ID: {} para servicio: {}",
-                savedComment.getId(), service.getName());
+    private void onCommentCreated(Comment comment) {
+        ratingSummaryService.onCommentCreated(comment);
+        serviceVersions.bump(comment.getServiceUuid());
+        commentSearchIndex.index(comment);
+        serviceLeaderboard.onRatingsChanged(comment.getServiceUuid());
+    }
 
-        // Publicar comentario a Kafka
-        commentKafkaProducer.publishComment(savedComment);
+    /**
+     * Invalida las cachés de lectura de los comentarios y de sus servicios, en
+     * esta réplica y en las demás. Va antes de cambiar la versión del servicio,
+     * para que un ETag nuevo nunca se asocie a una página en caché anterior
+     */
+    private void invalidateCaches(List<Long> commentIds, Collection<Comment> comments) {
+        Set<UUID> serviceUuids = new HashSet<>();
+        Set<Long> serviceIdHashes = new HashSet<>();
+        for (Comment comment : comments) {
+            if (comment.getServiceUuid() != null) {
+                serviceUuids.add(comment.getServiceUuid());
+            }
+            if (comment.getServiceIdHash() != null) {
+                serviceIdHashes.add(comment.getServiceIdHash());
+            }
+        }
+        commentCacheInvalidator.invalidate(commentIds, serviceUuids, serviceIdHashes);
+    }
 
-        return savedComment;
+    /**
+     * Ejecuta la acción cuando la transacción actual se confirma, para que los
+     * modelos de lectura en memoria no reflejen cambios que terminan en rollback.
+     * Un error de la acción se registra y no se propaga: la escritura ya está
+     * confirmada y no debe reportarse como fallida ni reintentarse
+     */
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            runAfterCommit(action);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                runAfterCommit(action);
+            }
+        });
+    }
+
+    private static void runAfterCommit(Runnable action) {
+        try {
+            action.run();
+        } catch (RuntimeException e) {
+            log.error("Error actualizando los modelos de lectura después del commit: {}", e.getMessage(), e);
+        }
     }
 
 }
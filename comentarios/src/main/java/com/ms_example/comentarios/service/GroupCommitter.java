@@ -0,0 +1,253 @@
+package com.ms_example.comentarios.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Agrupa escrituras concurrentes (group commit): cada llamador encola su
+ * elemento y un único hilo los escribe en lotes, con una sola transacción por
+ * lote. El futuro de cada elemento se completa después del commit.
+ *
+ * Un lote se cierra al llegar a maxBatchSize elementos o cuando el primero
+ * lleva maxDelay en la cola, lo que ocurra antes; con poca carga el retraso
+ * máximo es maxDelay más el tiempo de una escritura. Si un lote falla, sus
+ * elementos se reintentan uno a uno para que un elemento inválido no haga
+ * fallar a los demás. Un Error durante la escritura falla los futuros de ese
+ * lote sin detener el hilo; si aun así el hilo termina, el agrupador deja de
+ * aceptar elementos y falla los que quedaban en cola.
+ *
+ * Un llamador que deja de esperar puede cancelar su futuro: si el hilo aún no
+ * tomó el elemento, este se descarta y no se escribe; si ya lo tomó, cancel
+ * devuelve false y el resultado llega con el commit de su lote.
+ *
+ * @param <T> Elemento a escribir
+ * @param <R> Resultado de cada elemento, en el mismo orden del lote
+ */
+@Slf4j
+final class GroupCommitter<T, R> implements AutoCloseable {
+
+    private record Pending<T, R>(T item, PendingResult<R> result, long enqueuedNanos) {
+    }
+
+    /**
+     * Futuro de un elemento en cola. El hilo escritor lo reclama antes de
+     * escribirlo; cancel solo tiene efecto mientras no esté reclamado
+     */
+    private static final class PendingResult<R> extends CompletableFuture<R> {
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        private boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            return claim() && super.cancel(mayInterruptIfRunning);
+        }
+    }
+
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final Function<List<T>, List<R>> writer;
+    private final BlockingQueue<Pending<T, R>> queue;
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    private final DistributionSummary batchSize;
+    private final Timer waitTimer;
+    private final Counter rejected;
+    private final Counter retried;
+    private final Counter cancelled;
+
+    /**
+     * @param name         Nombre del hilo y tag de las métricas
+     *                     comments.group-commit.*
+     * @param maxBatchSize Máximo de elementos por transacción
+     * @param maxDelay     Espera máxima de un elemento antes de cerrar su lote
+     * @param maxPending   Elementos en cola; con la cola llena submit rechaza
+     * @param writer       Escribe un lote en una transacción y devuelve los
+     *                     resultados en el mismo orden
+     */
+    GroupCommitter(String name, int maxBatchSize, Duration maxDelay, int maxPending,
+            Function<List<T>, List<R>> writer, MeterRegistry meterRegistry) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("maxBatchSize debe ser positivo: " + maxBatchSize);
+        }
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.writer = writer;
+        this.queue = new LinkedBlockingQueue<>(maxPending);
+        this.batchSize = DistributionSummary.builder("comments.group-commit.batch.size")
+                .description("Elementos escritos por transacción")
+                .tag("writer", name)
+                .register(meterRegistry);
+        this.waitTimer = Timer.builder("comments.group-commit.wait")
+                .description("Tiempo desde que se encola un elemento hasta el commit de su lote")
+                .tag("writer", name)
+                .register(meterRegistry);
+        this.rejected = Counter.builder("comments.group-commit.rejected")
+                .description("Elementos rechazados por cola llena")
+                .tag("writer", name)
+                .register(meterRegistry);
+        this.retried = Counter.builder("comments.group-commit.retried")
+                .description("Lotes fallidos que se reintentaron elemento por elemento")
+                .tag("writer", name)
+                .register(meterRegistry);
+        this.cancelled = Counter.builder("comments.group-commit.cancelled")
+                .description("Elementos cancelados por el llamador antes de escribirse")
+                .tag("writer", name)
+                .register(meterRegistry);
+        this.worker = new Thread(this::run, name);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Encola un elemento para el siguiente lote
+     *
+     * @return El futuro que se completa con el resultado después del commit, o
+     *         null si la cola está llena o el agrupador se cerró; en ese caso
+     *         el llamador debe escribir por su cuenta. cancel(false) descarta
+     *         el elemento si todavía no se está escribiendo
+     */
+    CompletableFuture<R> submit(T item) {
+        if (!running) {
+            return null;
+        }
+        Pending<T, R> pending = new Pending<>(item, new PendingResult<>(), System.nanoTime());
+        if (!queue.offer(pending)) {
+            rejected.increment();
+            return null;
+        }
+        // Si el agrupador se detuvo mientras se encolaba, nadie escribirá el
+        // elemento; si ya no está en la cola, quien lo sacó completa el futuro
+        if (!running && queue.remove(pending)) {
+            return null;
+        }
+        return pending.result();
+    }
+
+    private void run() {
+        try {
+            process();
+        } finally {
+            running = false;
+            failQueued("El hilo del agrupador de escrituras terminó");
+        }
+    }
+
+    private void process() {
+        List<Pending<T, R>> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending<T, R> first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                // Lo que ya está en cola entra sin esperar; luego se espera por
+                // más elementos solo hasta que venza el plazo del primero
+                queue.drainTo(batch, maxBatchSize - batch.size());
+                long deadline = first.enqueuedNanos() + maxDelayNanos;
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    Pending<T, R> next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    queue.drainTo(batch, maxBatchSize - batch.size());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+            // Desde aquí los elementos ya no se pueden cancelar
+            int claimable = batch.size();
+            batch.removeIf(pending -> !pending.result().claim());
+            if (batch.size() < claimable) {
+                cancelled.increment(claimable - batch.size());
+            }
+            if (!batch.isEmpty()) {
+                try {
+                    write(batch);
+                } catch (Throwable e) {
+                    log.error("Error escribiendo un lote de {} elementos: {}", batch.size(), e.toString(), e);
+                    for (Pending<T, R> pending : batch) {
+                        pending.result().completeExceptionally(e);
+                    }
+                }
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<Pending<T, R>> batch) {
+        List<T> items = new ArrayList<>(batch.size());
+        for (Pending<T, R> pending : batch) {
+            items.add(pending.item());
+        }
+        List<R> results;
+        try {
+            results = writer.apply(items);
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                batch.get(0).result().completeExceptionally(e);
+                return;
+            }
+            log.warn("Falló un lote de {} elementos, se reintentan uno a uno: {}", batch.size(), e.getMessage());
+            retried.increment();
+            for (Pending<T, R> pending : batch) {
+                write(List.of(pending));
+            }
+            return;
+        }
+        batchSize.record(batch.size());
+        complete(batch, results);
+    }
+
+    private void complete(List<Pending<T, R>> batch, List<R> results) {
+        long now = System.nanoTime();
+        for (int i = 0; i < batch.size(); i++) {
+            Pending<T, R> pending = batch.get(i);
+            waitTimer.record(now - pending.enqueuedNanos(), TimeUnit.NANOSECONDS);
+            pending.result().complete(results.get(i));
+        }
+    }
+
+    /**
+     * Deja de aceptar elementos y espera a que se escriban los que ya estaban
+     * en cola
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            worker.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Elementos encolados mientras se cerraba
+        failQueued("El agrupador de escrituras se cerró");
+    }
+
+    private void failQueued(String message) {
+        Pending<T, R> pending;
+        while ((pending = queue.poll()) != null) {
+            pending.result().completeExceptionally(new IllegalStateException(message));
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.ms_example.comentarios.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Temporizador de rueda (hashed wheel) para vencimientos masivos de baja
+ * precisión, como los deadlines de las solicitudes request/reply.
+ *
+ * Programar y cancelar son O(1) y no crean una tarea por vencimiento: un único
+ * hilo avanza la rueda cada tick y ejecuta los vencimientos del casillero
+ * actual. La precisión es de un tick. Las tareas se ejecutan en el hilo de la
+ * rueda y deben ser breves.
+ */
+@Slf4j
+final class HashedWheelTimer implements AutoCloseable {
+
+    interface Timeout {
+        void cancel();
+    }
+
+    private static final class Entry implements Timeout {
+        private final Runnable task;
+        private final long deadlineNanos;
+        private long remainingRounds;
+        private volatile boolean cancelled;
+
+        private Entry(Runnable task, long deadlineNanos) {
+            this.task = task;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+
+    private final long tickNanos;
+    private final long startNanos;
+    private final List<Entry>[] wheel;
+    private final int mask;
+    // Los vencimientos nuevos pasan por esta cola; los casilleros solo los toca
+    // el hilo de la rueda
+    private final Queue<Entry> incoming = new ConcurrentLinkedQueue<>();
+    private final Thread worker;
+    private volatile boolean running = true;
+    private long tick;
+
+    @SuppressWarnings("unchecked")
+    HashedWheelTimer(String name, Duration tickDuration, int ticksPerWheel) {
+        if (Integer.bitCount(ticksPerWheel) != 1) {
+            throw new IllegalArgumentException("ticksPerWheel debe ser potencia de 2: " + ticksPerWheel);
+        }
+        this.tickNanos = tickDuration.toNanos();
+        this.wheel = new List[ticksPerWheel];
+        for (int i = 0; i < ticksPerWheel; i++) {
+            wheel[i] = new ArrayList<>();
+        }
+        this.mask = ticksPerWheel - 1;
+        this.startNanos = System.nanoTime();
+        this.worker = new Thread(this::run, name);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    Timeout schedule(Runnable task, Duration delay) {
+        Entry entry = new Entry(task, System.nanoTime() + delay.toNanos());
+        incoming.add(entry);
+        return entry;
+    }
+
+    private void run() {
+        while (running) {
+            long tickDeadline = startNanos + (tick + 1) * tickNanos;
+            long sleep;
+            while (running && (sleep = tickDeadline - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(this, sleep);
+            }
+            transferIncoming();
+            expire(wheel[(int) (tick & mask)]);
+            tick++;
+        }
+    }
+
+    private void transferIncoming() {
+        Entry entry;
+        while ((entry = incoming.poll()) != null) {
+            if (entry.cancelled) {
+                continue;
+            }
+            long calculated = (entry.deadlineNanos - startNanos) / tickNanos;
+            entry.remainingRounds = (calculated - tick) / wheel.length;
+            // Un vencimiento ya pasado se ejecuta en el tick actual
+            wheel[(int) (Math.max(calculated, tick) & mask)].add(entry);
+        }
+    }
+
+    private void expire(List<Entry> bucket) {
+        int kept = 0;
+        for (int i = 0; i < bucket.size(); i++) {
+            Entry entry = bucket.get(i);
+            if (entry.cancelled) {
+                continue;
+            }
+            if (entry.remainingRounds <= 0) {
+                try {
+                    entry.task.run();
+                } catch (RuntimeException e) {
+                    log.error("Error ejecutando vencimiento: {}", e.getMessage(), e);
+                }
+                continue;
+            }
+            entry.remainingRounds--;
+            bucket.set(kept++, entry);
+        }
+        bucket.subList(kept, bucket.size()).clear();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(worker);
+    }
+}
@@ -1,60 +1,153 @@
 package com.ms_example.comentarios.service;
 
+import com.ms_example.comentarios.dto.ServiceRequestDTO;
 import com.ms_example.comentarios.dto.ServiceResponseDTO;
-import lombok.RequiredArgsConstructor;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cloud.stream.function.StreamBridge;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Servicio para manejar mensajería Kafka
+ *
+ * Las solicitudes de información de servicios se correlacionan por requestId.
+ * Las consultas concurrentes de un mismo servicio comparten una sola solicitud
+ * en vuelo (single-flight), los vencimientos corren en una rueda de tiempo y el
+ * número de solicitudes pendientes está acotado. Ante timeout o rechazo el
+ * llamador recibe una respuesta con errorMessage en lugar de una excepción.
  */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class KafkaMessagingService {
 
+    static final String SERVICE_REQUEST_BINDING = "serviceRequest-out-0";
+    // Errores locales: la solicitud nunca llegó a marketplace
+    static final String REJECTED_MESSAGE = "Demasiadas solicitudes de servicio pendientes";
+    static final String SEND_FAILED_MESSAGE = "No se pudo enviar la solicitud de servicio";
+    // Sin respuesta a tiempo: marketplace puede estar lento o caído
+    static final String TIMEOUT_MESSAGE = "Timeout en solicitud de servicio";
+
     private final StreamBridge streamBridge;
+    private final String requester;
+    private final Duration requestTimeout;
+    private final int maxPending;
+    private final HashedWheelTimer timer;
 
     // Mapa para correlacionar requests/responses asíncronos
-    private final Map<String, CompletableFuture<ServiceResponseDTO>> pendingRequests = new ConcurrentHashMap<>();
+    private final Map<String, PendingRequest> pendingRequests = new ConcurrentHashMap<>();
+    // Solicitud en vuelo por servicio, compartida por las consultas concurrentes
+    private final Map<UUID, PendingRequest> inFlightByService = new ConcurrentHashMap<>();
+    // Cupos de maxPending ocupados: se reservan antes de crear la solicitud y se
+    // liberan al completarla, para que el límite se respete con llamadas concurrentes
+    private final AtomicInteger pendingCount = new AtomicInteger();
+
+    private final Timer responseLatency;
+    private final Timer timeoutLatency;
+    private final Counter coalesced;
+    private final Counter rejected;
+
+    private static final class PendingRequest {
+        private final String requestId = UUID.randomUUID().toString();
+        private final UUID serviceId;
+        private final CompletableFuture<ServiceResponseDTO> future = new CompletableFuture<>();
+        private final long startNanos = System.nanoTime();
+        private volatile HashedWheelTimer.Timeout timeout;
+
+        private PendingRequest(UUID serviceId) {
+            this.serviceId = serviceId;
+        }
+    }
+
+    public KafkaMessagingService(StreamBridge streamBridge, MeterRegistry meterRegistry,
+            @Value("${spring.application.name:microservicio-comentarios}") String requester,
+            @Value("${comments.service-request.timeout:10s}") Duration requestTimeout,
+            @Value("${comments.service-request.max-pending:100000}") int maxPending,
+            @Value("${comments.service-request.timer-tick:100ms}") Duration timerTick) {
+        this.streamBridge = streamBridge;
+        this.requester = requester;
+        this.requestTimeout = requestTimeout;
+        this.maxPending = maxPending;
+        this.timer = new HashedWheelTimer("service-request-timer", timerTick, 512);
+
+        Gauge.builder("comments.service.requests.pending", pendingCount, AtomicInteger::get)
+                .description("Solicitudes de información de servicios esperando respuesta")
+                .register(meterRegistry);
+        this.responseLatency = latencyTimer(meterRegistry, "response");
+        this.timeoutLatency = latencyTimer(meterRegistry, "timeout");
+        this.coalesced = Counter.builder("comments.service.requests.coalesced")
+                .description("Consultas que se unieron a una solicitud ya en vuelo para el mismo servicio")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("comments.service.requests.rejected")
+                .description("Solicitudes rechazadas por superar el máximo de pendientes")
+                .register(meterRegistry);
+    }
+
+    private static Timer latencyTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("comments.service.requests.latency")
+                .description("Tiempo hasta la respuesta o el timeout de una solicitud de servicio")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
 
     /**
-     * Solicita información de un servicio vía Kafka
+     * Solicita información de un servicio vía Kafka. Si ya hay una solicitud en
+     * vuelo para el mismo servicio se reutiliza su resultado
      */
     public CompletableFuture<ServiceResponseDTO> requestServiceInfo(UUID serviceId) {
-        String requestId = UUID.randomUUID().toString();
-        // ServiceRequestDTO request = new ServiceRequestDTO(serviceId, requestId, "carrito-compras-service");
-
-        CompletableFuture<ServiceResponseDTO> future = new CompletableFuture<>();
-        pendingRequests.put(requestId, future);
-
-        future.orTimeout(10, TimeUnit.SECONDS)
-                .exceptionally(throwable -> {
-                    pendingRequests.remove(requestId);
-                    log.error("Timeout en solicitud de servicio {}: {}", serviceId, throwable.getMessage());
-                    ServiceResponseDTO errorResponse = new ServiceResponseDTO();
-                    errorResponse.setRequestId(requestId);
-                    errorResponse.setErrorMessage("Timeout en solicitud de servicio");
-                    return errorResponse;
-                });
-
-        // // boolean sent = streamBridge.send("serviceRequest-out-0", request);
-        // boolean sent = false;
-        // if (!sent) {
-        //     pendingRequests.remove(requestId);
-        //     future.completeExceptionally(new RuntimeException("No se pudo enviar la solicitud de servicio"));
-        // } else {
-        //     log.info("Solicitud enviada para servicio {} con requestId {}", serviceId, requestId);
-        // }
-
-        return future;
+        PendingRequest existing = inFlightByService.get(serviceId);
+        if (existing != null) {
+            coalesced.increment();
+            return existing.future.copy();
+        }
+        if (!reserveSlot()) {
+            rejected.increment();
+            log.warn("Solicitud de servicio {} rechazada: {} solicitudes pendientes", serviceId, maxPending);
+            return CompletableFuture.completedFuture(
+                    errorResponse(null, serviceId, REJECTED_MESSAGE));
+        }
+
+        PendingRequest created = new PendingRequest(serviceId);
+        PendingRequest pending = inFlightByService.putIfAbsent(serviceId, created);
+        if (pending != null) {
+            // Otro llamador creó la solicitud entre tanto: se comparte la suya
+            pendingCount.decrementAndGet();
+            coalesced.increment();
+            return pending.future.copy();
+        }
+        pendingRequests.put(created.requestId, created);
+        created.timeout = timer.schedule(() -> expire(created), requestTimeout);
+
+        ServiceRequestDTO request = new ServiceRequestDTO(serviceId, created.requestId, requester);
+        boolean sent;
+        try {
+            sent = streamBridge.send(SERVICE_REQUEST_BINDING, request);
+        } catch (RuntimeException e) {
+            log.error("Error enviando solicitud de servicio {}: {}", serviceId, e.getMessage());
+            sent = false;
+        }
+        if (!sent) {
+            fail(created, SEND_FAILED_MESSAGE);
+        } else {
+            log.debug("Solicitud enviada para servicio {} con requestId {}", serviceId, created.requestId);
+        }
+
+        // Cada llamador recibe su propia copia, para que cancelarla no afecte a
+        // los demás que comparten la solicitud
+        return created.future.copy();
     }
 
     /**
@@ -62,20 +155,80 @@ public class KafkaMessagingService {
      */
     public void handleServiceResponse(ServiceResponseDTO response) {
         String requestId = response.getRequestId();
-        CompletableFuture<ServiceResponseDTO> future = pendingRequests.remove(requestId);
+        PendingRequest pending = pendingRequests.remove(requestId);
+
+        if (pending != null) {
+            pendingCount.decrementAndGet();
+            inFlightByService.remove(pending.serviceId, pending);
+            HashedWheelTimer.Timeout timeout = pending.timeout;
+            if (timeout != null) {
+                timeout.cancel();
+            }
+            responseLatency.record(System.nanoTime() - pending.startNanos, TimeUnit.NANOSECONDS);
 
-        if (future != null) {
             if (response.getErrorMessage() != null) {
                 log.error("Error en respuesta de servicio {}: {}", response.getServiceId(), response.getErrorMessage());
             } else {
                 log.info("Respuesta recibida para servicio {} con requestId {}", response.getServiceId(), requestId);
             }
-            future.complete(response);
+            pending.future.complete(response);
         } else {
             log.warn("Respuesta recibida para requestId {} pero no hay solicitud pendiente", requestId);
         }
     }
 
+    public int getPendingCount() {
+        return pendingCount.get();
+    }
+
+    private boolean reserveSlot() {
+        int current;
+        do {
+            current = pendingCount.get();
+            if (current >= maxPending) {
+                return false;
+            }
+        } while (!pendingCount.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    private void fail(PendingRequest pending, String message) {
+        if (!pendingRequests.remove(pending.requestId, pending)) {
+            return;
+        }
+        pendingCount.decrementAndGet();
+        inFlightByService.remove(pending.serviceId, pending);
+        pending.timeout.cancel();
+        pending.future.complete(errorResponse(pending.requestId, pending.serviceId, message));
+    }
+
+    private void expire(PendingRequest pending) {
+        // Si la respuesta ya llegó, remove devuelve false y no hay nada que hacer
+        if (!pendingRequests.remove(pending.requestId, pending)) {
+            return;
+        }
+        pendingCount.decrementAndGet();
+        inFlightByService.remove(pending.serviceId, pending);
+        timeoutLatency.record(System.nanoTime() - pending.startNanos, TimeUnit.NANOSECONDS);
+        // Con miles de vencimientos simultáneos un log por solicitud saturaría la
+        // salida; el total queda en comments.service.requests.latency{outcome=timeout}
+        log.debug("Timeout en solicitud de servicio {} con requestId {}", pending.serviceId, pending.requestId);
+        pending.future.complete(errorResponse(pending.requestId, pending.serviceId, TIMEOUT_MESSAGE));
+    }
+
+    private static ServiceResponseDTO errorResponse(String requestId, UUID serviceId, String message) {
+        ServiceResponseDTO errorResponse = new ServiceResponseDTO();
+        errorResponse.setRequestId(requestId);
+        errorResponse.setServiceId(serviceId.toString());
+        errorResponse.setErrorMessage(message);
+        return errorResponse;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.close();
+    }
+
     // /**
     //  * Publica evento de carrito
     //  */
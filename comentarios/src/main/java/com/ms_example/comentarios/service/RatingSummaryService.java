@@ -0,0 +1,147 @@
+package com.ms_example.comentarios.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.stereotype.Service;
+
+import com.ms_example.comentarios.dto.RatingSummaryDTO;
+import com.ms_example.comentarios.model.Comment;
+import com.ms_example.comentarios.repository.CommentRepository;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Modelo de lectura con el resumen de calificaciones por servicio.
+ * Se reconstruye desde la tabla de comentarios al iniciar y luego se
+ * mantiene de forma incremental con cada alta, edición y borrado, de modo
+ * que consultar el resumen de un servicio es O(1).
+ * Los comentarios sin rating no se contabilizan.
+ */
+@Service
+@Slf4j
+public class RatingSummaryService {
+
+    static final int MAX_STARS = 5;
+
+    private final CommentRepository commentRepository;
+
+    private final Map<UUID, RatingAggregate> summaries = new ConcurrentHashMap<>();
+
+    public RatingSummaryService(CommentRepository commentRepository) {
+        this.commentRepository = commentRepository;
+    }
+
+    /**
+     * Reconstruye los resúmenes agregando la tabla de comentarios en la base
+     * de datos
+     */
+    @PostConstruct
+    public void rebuild() {
+        Map<UUID, RatingAggregate> rebuilt = new HashMap<>();
+        for (Object[] row : commentRepository.aggregateRatingsByServiceUuid()) {
+            UUID serviceUuid = (UUID) row[0];
+            int stars = bucketOf(((Number) row[1]).intValue());
+            long count = ((Number) row[2]).longValue();
+            BigDecimal sum = (BigDecimal) row[3];
+            rebuilt.merge(serviceUuid, RatingAggregate.EMPTY.addBucket(stars, count, sum), RatingAggregate::combine);
+        }
+        summaries.clear();
+        summaries.putAll(rebuilt);
+        log.info("Resumen de calificaciones reconstruido para {} servicios", rebuilt.size());
+    }
+
+    public RatingSummaryDTO getSummary(UUID serviceUuid) {
+        return summaries.getOrDefault(serviceUuid, RatingAggregate.EMPTY).toDto(serviceUuid);
+    }
+
+    /**
+     * Servicios con al menos un comentario calificado
+     */
+    public Set<UUID> ratedServices() {
+        return Collections.unmodifiableSet(summaries.keySet());
+    }
+
+    public void onCommentCreated(Comment comment) {
+        apply(comment.getServiceUuid(), comment.getRating(), 1);
+    }
+
+    public void onCommentUpdated(UUID previousServiceUuid, BigDecimal previousRating, Comment current) {
+        apply(previousServiceUuid, previousRating, -1);
+        apply(current.getServiceUuid(), current.getRating(), 1);
+    }
+
+    public void onCommentDeleted(UUID serviceUuid, BigDecimal rating) {
+        apply(serviceUuid, rating, -1);
+    }
+
+    private void apply(UUID serviceUuid, BigDecimal rating, int delta) {
+        if (serviceUuid == null || rating == null) {
+            return;
+        }
+        int stars = bucketOf(rating.setScale(0, RoundingMode.FLOOR).intValue());
+        BigDecimal signedRating = delta > 0 ? rating : rating.negate();
+        summaries.compute(serviceUuid, (key, current) -> {
+            RatingAggregate updated = (current != null ? current : RatingAggregate.EMPTY)
+                    .addBucket(stars, delta, signedRating);
+            return updated.count == 0 ? null : updated;
+        });
+    }
+
+    private static int bucketOf(int stars) {
+        return Math.max(0, Math.min(MAX_STARS, stars));
+    }
+
+    /**
+     * Agregado inmutable; cada actualización produce una nueva instancia para
+     * que las lecturas concurrentes nunca vean un estado parcial
+     */
+    private static final class RatingAggregate {
+
+        static final RatingAggregate EMPTY = new RatingAggregate(0, BigDecimal.ZERO, new long[MAX_STARS + 1]);
+
+        final long count;
+        final BigDecimal sum;
+        final long[] histogram;
+
+        RatingAggregate(long count, BigDecimal sum, long[] histogram) {
+            this.count = count;
+            this.sum = sum;
+            this.histogram = histogram;
+        }
+
+        RatingAggregate addBucket(int stars, long countDelta, BigDecimal sumDelta) {
+            long[] newHistogram = histogram.clone();
+            newHistogram[stars] += countDelta;
+            return new RatingAggregate(count + countDelta, sum.add(sumDelta), newHistogram);
+        }
+
+        RatingAggregate combine(RatingAggregate other) {
+            long[] newHistogram = histogram.clone();
+            for (int i = 0; i < newHistogram.length; i++) {
+                newHistogram[i] += other.histogram[i];
+            }
+            return new RatingAggregate(count + other.count, sum.add(other.sum), newHistogram);
+        }
+
+        RatingSummaryDTO toDto(UUID serviceUuid) {
+            BigDecimal average = count > 0
+                    ? sum.divide(BigDecimal.valueOf(count), 2, RoundingMode.HALF_UP)
+                    : BigDecimal.ZERO;
+            return RatingSummaryDTO.builder()
+                    .serviceUuid(serviceUuid.toString())
+                    .count(count)
+                    .sum(sum)
+                    .average(average)
+                    .histogram(histogram.clone())
+                    .build();
+        }
+    }
+}
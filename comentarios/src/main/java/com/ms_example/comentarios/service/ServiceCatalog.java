@@ -0,0 +1,298 @@
+package com.ms_example.comentarios.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Policy.VarExpiration;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import com.ms_example.comentarios.dto.ServiceResponseDTO;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Catálogo en memoria de los servicios recibidos desde el marketplace.
+ *
+ * Las altas y consultas por ID son O(1) sobre una caché Caffeine acotada
+ * (política W-TinyLFU) con tiempo de vida por entrada, de modo que el heap no
+ * crece sin límite en pods de larga duración. Los eventos DELETED eliminan el
+ * servicio. Cada cambio, incluidas las expulsiones por tamaño o expiración,
+ * incrementa una versión monótona; la lista completa se publica como un
+ * snapshot inmutable que se reconstruye una sola vez por versión, la primera
+ * vez que alguien la pide, y se comparte entre todos los lectores sin copiarla.
+ *
+ * Junto a los servicios se guarda el último offset aplicado de cada partición
+ * de service-response-topic, para poder persistir y restaurar el catálogo de
+ * forma consistente. Al restaurar, cada servicio conserva el tiempo de vida
+ * que le quedaba según su hora de escritura, de modo que los reinicios no lo
+ * prolongan.
+ *
+ * Aciertos, fallos y expulsiones se publican en actuator bajo
+ * comments.service.catalog.
+ *
+ * Los modelos derivados del catálogo (p. ej. el ranking de servicios) se
+ * registran como ChangeListener y reciben los IDs que cambiaron, después de
+ * aplicado el cambio y fuera del lock de escritura.
+ */
+@Service
+@Slf4j
+public class ServiceCatalog {
+
+    /**
+     * Vista inmutable del catálogo en una versión dada, con los offsets ya
+     * aplicados en ella
+     */
+    public record Snapshot(long version, List<ServiceResponseDTO> services, Map<TopicPartition, Long> offsets) {
+    }
+
+    /**
+     * Servicio persistido junto a la hora en que se escribió en el catálogo
+     */
+    public record StoredService(ServiceResponseDTO service, Instant writtenAt) {
+    }
+
+    /**
+     * Recibe los IDs de los servicios agregados, actualizados o quitados
+     */
+    public interface ChangeListener {
+        void servicesChanged(Collection<UUID> serviceIds);
+    }
+
+    static final String CACHE_NAME = "comments.service.catalog";
+
+    private final Cache<UUID, ServiceResponseDTO> services;
+    private final VarExpiration<UUID, ServiceResponseDTO> expiration;
+    private final Duration expireAfterWrite;
+    private final AtomicLong version = new AtomicLong();
+    // Serializa las escrituras y la reconstrucción del snapshot, para que un
+    // snapshot nunca contenga un lote aplicado a medias
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private volatile Snapshot snapshot = new Snapshot(0, List.of(), Map.of());
+    // Se escribe solo bajo writeLock
+    private final Map<TopicPartition, Long> offsets = new ConcurrentHashMap<>();
+    private final List<ChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    public ServiceCatalog(@Value("${comments.catalog.maximum-size:100000}") long maximumSize,
+            @Value("${comments.catalog.expire-after-write:24h}") Duration expireAfterWrite,
+            MeterRegistry meterRegistry) {
+        this.expireAfterWrite = expireAfterWrite;
+        this.services = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                // Tiempo de vida fijo desde cada escritura; variable solo para
+                // poder restaurar una entrada con el tiempo que le quedaba
+                .expireAfter(new Expiry<UUID, ServiceResponseDTO>() {
+                    @Override
+                    public long expireAfterCreate(UUID serviceId, ServiceResponseDTO service, long currentTime) {
+                        return expireAfterWrite.toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(UUID serviceId, ServiceResponseDTO service, long currentTime,
+                            long currentDuration) {
+                        return expireAfterWrite.toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterRead(UUID serviceId, ServiceResponseDTO service, long currentTime,
+                            long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                // Sin scheduler la expiración solo se aplica al leer o escribir
+                .scheduler(Scheduler.systemScheduler())
+                .evictionListener((UUID serviceId, ServiceResponseDTO service, RemovalCause cause) -> {
+                    version.incrementAndGet();
+                    log.debug("Servicio {} expulsado del catálogo ({})", serviceId, cause);
+                })
+                // Se avisa de forma asíncrona, cuando el servicio ya no está en la caché
+                .removalListener((UUID serviceId, ServiceResponseDTO service, RemovalCause cause) -> {
+                    if (cause.wasEvicted()) {
+                        notifyListeners(List.of(serviceId));
+                    }
+                })
+                .recordStats()
+                .build();
+        this.expiration = services.policy().expireVariably().orElseThrow();
+        CaffeineCacheMetrics.monitor(meterRegistry, services, CACHE_NAME);
+        Gauge.builder("comments.service.catalog.size", services, Cache::estimatedSize)
+                .description("Servicios en el catálogo")
+                .register(meterRegistry);
+        Gauge.builder("comments.service.catalog.version", version, AtomicLong::get)
+                .description("Versión actual del catálogo de servicios")
+                .register(meterRegistry);
+    }
+
+    public ServiceResponseDTO get(UUID serviceId) {
+        return services.getIfPresent(serviceId);
+    }
+
+    public boolean contains(UUID serviceId) {
+        return services.getIfPresent(serviceId) != null;
+    }
+
+    public int size() {
+        return (int) services.estimatedSize();
+    }
+
+    public long version() {
+        return version.get();
+    }
+
+    public void addListener(ChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Último offset aplicado de una partición, o null si no se conoce
+     */
+    public Long lastOffset(TopicPartition partition) {
+        return offsets.get(partition);
+    }
+
+    /**
+     * Hora aproximada en que se escribió el servicio en el catálogo, o null si
+     * no está
+     */
+    public Instant writtenAt(UUID serviceId) {
+        return expiration.getExpiresAfter(serviceId)
+                .map(remaining -> Instant.now().minus(expireAfterWrite.minus(remaining)))
+                .orElse(null);
+    }
+
+    /**
+     * Aplica un evento de servicio: DELETED lo elimina, cualquier otro lo
+     * inserta o reemplaza
+     */
+    public void apply(ServiceResponseDTO service) {
+        applyAll(List.of(service), Map.of());
+    }
+
+    /**
+     * Aplica un lote de eventos y los offsets que lo cierran con un único
+     * cambio de versión
+     */
+    public void applyAll(Collection<ServiceResponseDTO> batch, Map<TopicPartition, Long> batchOffsets) {
+        if (batch.isEmpty() && batchOffsets.isEmpty()) {
+            return;
+        }
+        List<UUID> changed = new ArrayList<>(batch.size());
+        writeLock.lock();
+        try {
+            for (ServiceResponseDTO service : batch) {
+                if (service.isDeletedEvent()) {
+                    services.invalidate(service.getServiceId());
+                } else {
+                    services.put(service.getServiceId(), service);
+                }
+                changed.add(service.getServiceId());
+            }
+            batchOffsets.forEach((partition, offset) -> offsets.merge(partition, offset, Math::max));
+            version.incrementAndGet();
+        } finally {
+            writeLock.unlock();
+        }
+        notifyListeners(changed);
+    }
+
+    /**
+     * Devuelve el snapshot de la versión actual, reconstruyéndolo solo si hubo
+     * cambios desde el último
+     */
+    public Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current.version() == version.get()) {
+            return current;
+        }
+        writeLock.lock();
+        try {
+            long currentVersion = version.get();
+            if (snapshot.version() != currentVersion) {
+                snapshot = new Snapshot(currentVersion, List.copyOf(services.asMap().values()),
+                        Map.copyOf(offsets));
+            }
+            return snapshot;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Carga un catálogo persistido. Solo se usa al arrancar, antes de consumir.
+     * Cada servicio expira cuando le correspondía según su hora de escritura;
+     * los que ya vencieron no se cargan
+     *
+     * @return Servicios cargados
+     */
+    public int restore(Collection<StoredService> restored, Map<TopicPartition, Long> restoredOffsets) {
+        List<UUID> changed = new ArrayList<>(restored.size());
+        Instant now = Instant.now();
+        writeLock.lock();
+        try {
+            for (StoredService stored : restored) {
+                Duration remaining = expireAfterWrite.minus(Duration.between(stored.writtenAt(), now));
+                if (remaining.isNegative() || remaining.isZero()) {
+                    continue;
+                }
+                // Como mucho el tiempo de vida completo, aunque el reloj haya retrocedido
+                if (remaining.compareTo(expireAfterWrite) > 0) {
+                    remaining = expireAfterWrite;
+                }
+                UUID serviceId = stored.service().getServiceId();
+                expiration.put(serviceId, stored.service(), remaining);
+                changed.add(serviceId);
+            }
+            offsets.putAll(restoredOffsets);
+            version.incrementAndGet();
+        } finally {
+            writeLock.unlock();
+        }
+        notifyListeners(changed);
+        return changed.size();
+    }
+
+    public void clear() {
+        List<UUID> removed;
+        writeLock.lock();
+        try {
+            removed = List.copyOf(services.asMap().keySet());
+            services.invalidateAll();
+            version.incrementAndGet();
+        } finally {
+            writeLock.unlock();
+        }
+        notifyListeners(removed);
+        log.info("Catálogo de servicios limpiado");
+    }
+
+    private void notifyListeners(Collection<UUID> serviceIds) {
+        if (serviceIds.isEmpty()) {
+            return;
+        }
+        for (ChangeListener listener : listeners) {
+            try {
+                listener.servicesChanged(serviceIds);
+            } catch (RuntimeException e) {
+                log.error("Error notificando cambios del catálogo: {}", e.getMessage(), e);
+            }
+        }
+    }
+}
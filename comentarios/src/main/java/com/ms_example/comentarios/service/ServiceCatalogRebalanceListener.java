@@ -0,0 +1,45 @@
+package com.ms_example.comentarios.service;
+
+import java.util.Collection;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.cloud.stream.binder.kafka.KafkaBindingRebalanceListener;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Al recibir las particiones de service-response-topic por primera vez,
+ * reposiciona el consumidor justo después del último offset incluido en el
+ * catálogo restaurado, para reproducir solo lo publicado desde el snapshot.
+ * El grupo del binding es anónimo y por defecto empezaría en el final del
+ * topic, perdiendo esos mensajes.
+ */
+@Component
+@Slf4j
+public class ServiceCatalogRebalanceListener implements KafkaBindingRebalanceListener {
+
+    static final String SERVICE_RESPONSE_BINDING = "serviceResponse-in-0";
+
+    private final ServiceCatalog serviceCatalog;
+
+    public ServiceCatalogRebalanceListener(ServiceCatalog serviceCatalog) {
+        this.serviceCatalog = serviceCatalog;
+    }
+
+    @Override
+    public void onPartitionsAssigned(String bindingName, Consumer<?, ?> consumer,
+            Collection<TopicPartition> partitions, boolean initial) {
+        if (!initial || !SERVICE_RESPONSE_BINDING.equals(bindingName)) {
+            return;
+        }
+        for (TopicPartition partition : partitions) {
+            Long lastOffset = serviceCatalog.lastOffset(partition);
+            if (lastOffset != null) {
+                consumer.seek(partition, lastOffset + 1);
+                log.info("Partición {} reanudada desde el offset {} del snapshot", partition, lastOffset + 1);
+            }
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.ms_example.comentarios.service;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ms_example.comentarios.dto.ServiceResponseDTO;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Persiste periódicamente el catálogo de servicios en un archivo local para
+ * que, tras un reinicio, el servicio tenga el catálogo completo sin esperar a
+ * que marketplace vuelva a publicar cada servicio.
+ *
+ * Formato del archivo (big-endian): magic, versión de formato, número de
+ * offsets seguido de (topic, partición, offset), y número de servicios
+ * seguido de (hora de escritura en epoch ms, servicio como JSON con prefijo de
+ * longitud). La hora de escritura permite restaurar cada servicio con el
+ * tiempo de vida que le quedaba; los snapshots de la versión 1 no la tienen y
+ * sus servicios se restauran como recién escritos. Se escribe en un
+ * archivo temporal y se renombra atómicamente, de modo que nunca queda un
+ * snapshot a medias; al arrancar se lee con un mapeo en memoria.
+ */
+@Service
+@Slf4j
+public class ServiceCatalogSnapshotStore {
+
+    private static final int MAGIC = 0x53435331; // "SCS1"
+    private static final int FORMAT_VERSION = 2;
+
+    private final ServiceCatalog serviceCatalog;
+    private final ObjectMapper snapshotMapper;
+    private final boolean enabled;
+    private final Path path;
+    private volatile long lastSavedVersion = -1;
+
+    public ServiceCatalogSnapshotStore(ServiceCatalog serviceCatalog, ObjectMapper objectMapper,
+            @Value("${comments.catalog.snapshot.enabled:true}") boolean enabled,
+            @Value("${comments.catalog.snapshot.path:data/service-catalog.snapshot}") String path) {
+        this.serviceCatalog = serviceCatalog;
+        // Solo los campos del DTO: los getters derivados (getSafe*, getName...)
+        // inflarían el archivo y no se pueden volver a leer
+        this.snapshotMapper = objectMapper.copy()
+                .setVisibility(PropertyAccessor.ALL, Visibility.NONE)
+                .setVisibility(PropertyAccessor.FIELD, Visibility.ANY)
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        this.enabled = enabled;
+        this.path = Path.of(path);
+    }
+
+    /**
+     * Restaura el catálogo antes de que arranquen los bindings de Kafka
+     */
+    @PostConstruct
+    public void load() {
+        if (!enabled || !Files.isRegularFile(path)) {
+            return;
+        }
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int format = buffer.getInt() == MAGIC ? buffer.getInt() : -1;
+            if (format != 1 && format != FORMAT_VERSION) {
+                log.warn("Snapshot de catálogo {} con formato desconocido; se ignora", path);
+                return;
+            }
+
+            int offsetCount = buffer.getInt();
+            Map<TopicPartition, Long> offsets = new HashMap<>(offsetCount * 2);
+            for (int i = 0; i < offsetCount; i++) {
+                String topic = new String(readBytes(buffer), StandardCharsets.UTF_8);
+                int partition = buffer.getInt();
+                offsets.put(new TopicPartition(topic, partition), buffer.getLong());
+            }
+
+            int serviceCount = buffer.getInt();
+            Instant loadedAt = Instant.now();
+            List<ServiceCatalog.StoredService> services = new ArrayList<>(serviceCount);
+            for (int i = 0; i < serviceCount; i++) {
+                Instant writtenAt = format == 1 ? loadedAt : Instant.ofEpochMilli(buffer.getLong());
+                ServiceResponseDTO service = snapshotMapper.readValue(readBytes(buffer), ServiceResponseDTO.class);
+                services.add(new ServiceCatalog.StoredService(service, writtenAt));
+            }
+
+            int restored = serviceCatalog.restore(services, offsets);
+            lastSavedVersion = serviceCatalog.version();
+            log.info("Catálogo restaurado desde {}: {} servicios ({} vencidos), {} particiones en {} ms",
+                    path, restored, services.size() - restored, offsets.size(),
+                    (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException | RuntimeException e) {
+            // Un snapshot dañado no debe impedir el arranque; el catálogo se
+            // reconstruye desde Kafka
+            log.warn("No se pudo leer el snapshot de catálogo {}: {}", path, e.getMessage());
+        }
+    }
+
+    /**
+     * Escribe el snapshot si el catálogo cambió desde la última escritura
+     */
+    @Scheduled(fixedDelayString = "${comments.catalog.snapshot.interval-ms:30000}")
+    public void save() {
+        if (!enabled) {
+            return;
+        }
+        ServiceCatalog.Snapshot snapshot = serviceCatalog.snapshot();
+        if (snapshot.version() == lastSavedVersion) {
+            return;
+        }
+        try {
+            write(snapshot);
+            lastSavedVersion = snapshot.version();
+            log.debug("Snapshot de catálogo guardado: {} servicios (versión {})",
+                    snapshot.services().size(), snapshot.version());
+        } catch (IOException e) {
+            log.error("Error guardando snapshot de catálogo en {}: {}", path, e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    public void saveOnShutdown() {
+        save();
+    }
+
+    private void write(ServiceCatalog.Snapshot snapshot) throws IOException {
+        Path directory = path.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+
+                out.writeInt(snapshot.offsets().size());
+                for (Map.Entry<TopicPartition, Long> entry : snapshot.offsets().entrySet()) {
+                    writeBytes(out, entry.getKey().topic().getBytes(StandardCharsets.UTF_8));
+                    out.writeInt(entry.getKey().partition());
+                    out.writeLong(entry.getValue());
+                }
+
+                // Los que expiraron después de tomar el snapshot ya no se guardan
+                List<ServiceCatalog.StoredService> stored = new ArrayList<>(snapshot.services().size());
+                for (ServiceResponseDTO service : snapshot.services()) {
+                    Instant writtenAt = serviceCatalog.writtenAt(service.getServiceId());
+                    if (writtenAt != null) {
+                        stored.add(new ServiceCatalog.StoredService(service, writtenAt));
+                    }
+                }
+                out.writeInt(stored.size());
+                for (ServiceCatalog.StoredService entry : stored) {
+                    out.writeLong(entry.writtenAt().toEpochMilli());
+                    writeBytes(out, snapshotMapper.writeValueAsBytes(entry.service()));
+                }
+            }
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return bytes;
+    }
+}
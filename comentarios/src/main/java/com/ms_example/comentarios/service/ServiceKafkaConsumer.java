@@ -2,21 +2,31 @@ package com.ms_example.comentarios.service;
 
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import com.ms_example.comentarios.dto.ServiceResponseDTO;
 
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.TopicPartition;
 import org.springframework.context.annotation.Bean;
+import org.springframework.kafka.support.KafkaHeaders;
 import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
 import org.springframework.stereotype.Service;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
 import java.nio.charset.StandardCharsets;
-import java.util.Base64;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 /**
@@ -28,184 +38,171 @@ import java.util.function.Consumer;
 public class ServiceKafkaConsumer {
 
     private final KafkaMessagingService kafkaMessagingService;
-    private final ObjectMapper objectMapper;
+    private final ObjectReader serviceReader;
+    private final ObjectReader smileServiceReader;
+    private final ServiceCatalog serviceCatalog;
+
+    private final MeterRegistry meterRegistry;
+    private final Timer batchTimer;
+    private final DistributionSummary batchSize;
+    private final Counter recordsApplied;
+    private final Counter recordsSuperseded;
+    private final Counter recordsInvalid;
+    private final Counter recordsError;
+    private final Timer decodeTimer;
+    private final Timer deserializeTimer;
+    private final Timer registryTimer;
+
+    public ServiceKafkaConsumer(KafkaMessagingService kafkaMessagingService, ObjectMapper objectMapper,
+            ServiceCatalog serviceCatalog, MeterRegistry meterRegistry) {
+        this.kafkaMessagingService = kafkaMessagingService;
+        this.serviceReader = objectMapper.readerFor(ServiceResponseDTO.class);
+        this.smileServiceReader = objectMapper.copyWith(new SmileFactory()).readerFor(ServiceResponseDTO.class);
+        this.serviceCatalog = serviceCatalog;
+        this.meterRegistry = meterRegistry;
+        this.batchTimer = Timer.builder("comments.service.ingest.batch")
+                .description("Tiempo de procesamiento de cada lote de service-response-topic")
+                .register(meterRegistry);
+        this.batchSize = DistributionSummary.builder("comments.service.ingest.batch.size")
+                .description("Mensajes por lote de service-response-topic")
+                .register(meterRegistry);
+        this.recordsApplied = recordCounter(meterRegistry, "applied");
+        this.recordsSuperseded = recordCounter(meterRegistry, "superseded");
+        this.recordsInvalid = recordCounter(meterRegistry, "invalid");
+        this.recordsError = recordCounter(meterRegistry, "error");
+        this.decodeTimer = stageTimer(meterRegistry, "decode");
+        this.deserializeTimer = stageTimer(meterRegistry, "deserialize");
+        this.registryTimer = stageTimer(meterRegistry, "registry");
+    }
 
-    // Static list to store services received from Kafka
-    private static final Map<UUID, ServiceResponseDTO> AVAILABLE_SERVICES = new ConcurrentHashMap<>();
-    private static final List<ServiceResponseDTO> SERVICES_LIST = new CopyOnWriteArrayList<>();
+    private static Timer stageTimer(MeterRegistry meterRegistry, String stage) {
+        return Timer.builder("comments.service.ingest.stage")
+                .description("Tiempo de cada etapa del procesamiento de service-response-topic")
+                .tag("stage", stage)
+                .register(meterRegistry);
+    }
 
-    public ServiceKafkaConsumer(KafkaMessagingService kafkaMessagingService, ObjectMapper objectMapper) {
-        this.kafkaMessagingService = kafkaMessagingService;
-        this.objectMapper = objectMapper;
+    private static Counter recordCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("comments.service.ingest.records")
+                .description("Mensajes de service-response-topic procesados, por resultado")
+                .tag("result", result)
+                .register(meterRegistry);
     }
 
     /**
-     * Consumidor para respuestas de servicios del marketplace
+     * Consumidor por lotes para respuestas de servicios del marketplace.
+     * Decodifica y deserializa todo el lote, conserva solo el último mensaje de
+     * cada servicio y aplica el resultado al registro en un solo paso, junto con
+     * el último offset de cada partición.
+     *
+     * Los registros llegan como byte[] (application/octet-stream) y se
+     * deserializan sin pasar por String.
      */
     @Bean
-    public Consumer<Message<String>> serviceResponse() {
-        return message -> {
-            try {
-                log.info("Recibida respuesta de servicio del marketplace");
-
-                String rawMessage = message.getPayload();
-                log.debug("Mensaje crudo recibido: {}", rawMessage);
-
-                String jsonPayload = decodeMessage(rawMessage);
-                log.debug("JSON decodificado: {}", jsonPayload);
-
-                ServiceResponseDTO serviceResponse = objectMapper.readValue(jsonPayload, ServiceResponseDTO.class);
-
-                log.info("Servicio deserializado exitosamente: ID={}, Name={}",
-                        serviceResponse.getServiceId(), serviceResponse.getName());
-
-                if (serviceResponse == null || serviceResponse.getServiceId() == null) {
-                    log.warn("Respuesta de servicio inválida o vacía recibida");
-                    return;
-                }
-
-                processServiceResponse(serviceResponse);
-
-                if (serviceResponse.getRequestId() != null) {
-                    kafkaMessagingService.handleServiceResponse(serviceResponse);
-                }
-
-                log.info("Respuesta de servicio procesada exitosamente. ServiceId: {}",
-                        serviceResponse.getServiceId());
-
-            } catch (Exception e) {
-                log.error("Error procesando respuesta de servicio del marketplace: {}",
-                        e.getMessage(), e);
-            }
-        };
+    public Consumer<Message<List<byte[]>>> serviceResponse() {
+        return message -> processBatch(message.getPayload(), lastOffsets(message.getHeaders()));
     }
 
-    /**
-     * Decodifica el mensaje detectando si es Base64 o necesita otra conversión
-     */
-    private String decodeMessage(String rawMessage) {
-        try {
-            if (rawMessage.trim().startsWith("{")) {
-                log.debug("Mensaje detectado como JSON directo");
-                return rawMessage;
+    void processBatch(List<byte[]> rawMessages, Map<TopicPartition, Long> offsets) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Map<UUID, ServiceResponseDTO> latestByService = new LinkedHashMap<>();
+        List<ServiceResponseDTO> replies = new ArrayList<>();
+        int invalid = 0;
+        int errors = 0;
+
+        for (byte[] rawMessage : rawMessages) {
+            ServiceResponseDTO serviceResponse = deserialize(rawMessage);
+            if (serviceResponse == null || serviceResponse.getServiceId() == null) {
+                invalid++;
+                continue;
             }
-
-            if (rawMessage.startsWith("\"") && rawMessage.endsWith("\"")) {
-                rawMessage = rawMessage.substring(1, rawMessage.length() - 1);
+            if (serviceResponse.getRequestId() != null) {
+                replies.add(serviceResponse);
             }
-            log.debug("Intentando decodificar como Base64...");
-            byte[] decoded = Base64.getDecoder().decode(rawMessage);
-            String decodedStr = new String(decoded, StandardCharsets.UTF_8);
-
-            if (decodedStr.trim().startsWith("{")) {
-                log.debug("Base64 decodificado exitosamente a JSON");
-                return decodedStr;
-            } else {
-                log.warn("Base64 decodificado pero no es JSON válido: {}", decodedStr);
-                return rawMessage;
+            // Una respuesta de error solo identifica el servicio; no es un dato de catálogo
+            if (serviceResponse.getErrorMessage() != null) {
+                errors++;
+                continue;
             }
-
-        } catch (IllegalArgumentException e) {
-            log.debug("No es Base64 válido, usando como String directo");
-            return rawMessage;
-        } catch (Exception e) {
-            log.warn("Error en decodificación, usando mensaje original: {}", e.getMessage());
-            return rawMessage;
+            UUID serviceId = serviceResponse.getServiceId();
+            // Reinsertar para que el orden refleje la última actualización
+            latestByService.remove(serviceId);
+            latestByService.put(serviceId, serviceResponse);
         }
-    }
 
-    /**
-     * Procesa la respuesta del servicio recibida del marketplace
-     * 
-     */
-    private void processServiceResponse(ServiceResponseDTO serviceResponse) {
+        long registryStart = System.nanoTime();
         try {
-            log.debug("Procesando información del servicio: {} - {}",
-                    serviceResponse.getServiceId(), serviceResponse.getName());
-
-            // Guardar el servicio en la lista estática
-            saveServiceToStaticList(serviceResponse);
-
-            // Integrar con CartService para actualizar información del item (mantener funcionalidad existente)
-            // cartService.updateServiceInfo(serviceResponse);
-
-            log.info("Información del servicio {} actualizada en el carrito y guardada en lista estática",
-                    serviceResponse.getServiceId());
-
+            serviceCatalog.applyAll(latestByService.values(), offsets);
         } catch (Exception e) {
-            log.error("Error al procesar información del servicio {}: {}",
-                    serviceResponse.getServiceId(), e.getMessage(), e);
-            throw e; // Re-lanzar para que sea manejado por el consumer principal
+            log.error("Error aplicando lote de {} servicios: {}", latestByService.size(), e.getMessage(), e);
         }
-    }
+        registryTimer.record(System.nanoTime() - registryStart, TimeUnit.NANOSECONDS);
 
-    /**
-     * Guarda un servicio en la lista estática de servicios disponibles
-     */
-    private void saveServiceToStaticList(ServiceResponseDTO serviceResponse) {
-        try {
-            UUID serviceId = serviceResponse.getServiceId();
-            
-            // Guardar en el Map para acceso rápido por ID
-            AVAILABLE_SERVICES.put(serviceId, serviceResponse);
-            
-            // Actualizar la lista, removiendo duplicados si existen
-            SERVICES_LIST.removeIf(existing -> 
-                existing.getServiceId().equals(serviceResponse.getServiceId()));
-            SERVICES_LIST.add(serviceResponse);
-            
-            log.info("Servicio {} guardado en lista estática. Total servicios: {}", 
-                    serviceId, AVAILABLE_SERVICES.size());
-                    
-        } catch (Exception e) {
-            log.error("Error guardando servicio en lista estática: {}", e.getMessage());
+        // Las respuestas correlacionadas se entregan después de actualizar el registro
+        for (ServiceResponseDTO reply : replies) {
+            kafkaMessagingService.handleServiceResponse(reply);
         }
-    }
 
-    /**
-     * Obtiene un servicio específico de la lista estática por ID
-     */
-    public static ServiceResponseDTO getServiceById(UUID serviceId) {
-        ServiceResponseDTO service = AVAILABLE_SERVICES.get(serviceId);
-        if (service != null) {
-            log.debug("Servicio {} encontrado en lista estática", serviceId);
-        } else {
-            log.debug("Servicio {} no encontrado en lista estática", serviceId);
-        }
-        return service;
-    }
+        sample.stop(batchTimer);
+        batchSize.record(rawMessages.size());
+        recordsApplied.increment(latestByService.size());
+        recordsSuperseded.increment(rawMessages.size() - invalid - errors - latestByService.size());
+        recordsInvalid.increment(invalid);
+        recordsError.increment(errors);
 
-    /**
-     * Obtiene todos los servicios disponibles de la lista estática
-     */
-    public static List<ServiceResponseDTO> getAllAvailableServices() {
-        log.info("Obteniendo {} servicios desde lista", SERVICES_LIST.size());
-        return List.copyOf(SERVICES_LIST); // Retornar copia inmutable
+        log.info("Lote de {} mensajes procesado: {} servicios actualizados, {} inválidos. Total servicios: {}",
+                rawMessages.size(), latestByService.size(), invalid, serviceCatalog.size());
     }
 
     /**
-     * Verifica si un servicio existe en la lista estática
+     * Último offset de cada partición presente en el lote. En modo batch el
+     * binder publica topic, partición y offset como listas paralelas al payload
      */
-    public static boolean isServiceAvailable(UUID serviceId) {
-        boolean available = AVAILABLE_SERVICES.containsKey(serviceId);
-        log.debug("Servicio {} disponible en lista: {}", serviceId, available);
-        return available;
-    }
+    @SuppressWarnings("unchecked")
+    private static Map<TopicPartition, Long> lastOffsets(MessageHeaders headers) {
+        Object topics = headers.get(KafkaHeaders.RECEIVED_TOPIC);
+        Object partitions = headers.get(KafkaHeaders.RECEIVED_PARTITION);
+        Object offsets = headers.get(KafkaHeaders.OFFSET);
+        if (!(topics instanceof List) || !(partitions instanceof List) || !(offsets instanceof List)) {
+            return Map.of();
+        }
+        List<String> topicList = (List<String>) topics;
+        List<Integer> partitionList = (List<Integer>) partitions;
+        List<Long> offsetList = (List<Long>) offsets;
 
-    /**
-     * Obtiene el tamaño de la lista de servicios disponibles
-     */
-    public static int getAvailableServicesCount() {
-        return AVAILABLE_SERVICES.size();
+        Map<TopicPartition, Long> last = new HashMap<>();
+        for (int i = 0; i < offsetList.size(); i++) {
+            last.merge(new TopicPartition(topicList.get(i), partitionList.get(i)), offsetList.get(i), Math::max);
+        }
+        return last;
     }
 
     /**
-     * Limpia la lista de servicios (para testing)
+     * Deserializa un mensaje directamente desde sus bytes; devuelve null si no
+     * es válido
      */
-    public static void clearServicesList() {
-        AVAILABLE_SERVICES.clear();
-        SERVICES_LIST.clear();
-        log.info("Lista de servicios limpiada");
+    ServiceResponseDTO deserialize(byte[] rawMessage) {
+        if (log.isDebugEnabled()) {
+            log.debug("Mensaje crudo recibido: {}", new String(rawMessage, StandardCharsets.UTF_8));
+        }
+        long decodeStart = System.nanoTime();
+        ServicePayloadDecoder.JsonView json = ServicePayloadDecoder.locateJson(rawMessage);
+        long deserializeStart = System.nanoTime();
+        decodeTimer.record(deserializeStart - decodeStart, TimeUnit.NANOSECONDS);
+        if (json == null) {
+            log.warn("Mensaje descartado: no es JSON, Smile ni Base64 de alguno de ellos ({} bytes)",
+                    rawMessage.length);
+            return null;
+        }
+        try {
+            ObjectReader reader = json.smile() ? smileServiceReader : serviceReader;
+            return reader.readValue(json.bytes(), json.offset(), json.length());
+        } catch (Exception e) {
+            log.error("Error procesando respuesta de servicio del marketplace: {}", e.getMessage());
+            return null;
+        } finally {
+            deserializeTimer.record(System.nanoTime() - deserializeStart, TimeUnit.NANOSECONDS);
+        }
     }
 
     /**
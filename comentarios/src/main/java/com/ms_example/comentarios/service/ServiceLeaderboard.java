@@ -0,0 +1,227 @@
+package com.ms_example.comentarios.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.ms_example.comentarios.dto.RatingSummaryDTO;
+import com.ms_example.comentarios.dto.ServiceResponseDTO;
+import com.ms_example.comentarios.dto.TopServiceDTO;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Ranking de servicios mejor calificados, global y por categoría y país.
+ *
+ * El score de cada servicio es el promedio bayesiano
+ * (C * m + suma) / (C + cantidad), donde m es el promedio global de todas las
+ * calificaciones y C el peso de ese promedio, para que un servicio con una
+ * sola calificación de 5 no supere a uno con cientos de 4.8.
+ *
+ * Cada dimensión es un skip list ordenado por score: leer el top k es O(k) y
+ * sin locks, y cada cambio de un servicio (comentario o catálogo) lo reubica
+ * en O(log n). Solo se incluyen servicios activos del catálogo con al menos
+ * una calificación. Como m cambia con cada calificación, los scores se
+ * recalculan por completo de forma periódica con el promedio vigente.
+ */
+@Service
+@Slf4j
+public class ServiceLeaderboard implements ServiceCatalog.ChangeListener {
+
+    static final String ALL = "all";
+    private static final String CATEGORY_PREFIX = "category:";
+    private static final String COUNTRY_PREFIX = "country:";
+
+    private record Entry(UUID serviceId, double score, List<String> dimensions) {
+    }
+
+    private static final Comparator<Entry> BY_SCORE = Comparator.comparingDouble(Entry::score).reversed()
+            .thenComparing(Entry::serviceId);
+
+    private final RatingSummaryService ratingSummaryService;
+    private final ServiceCatalog serviceCatalog;
+    private final double priorWeight;
+    private final double defaultMean;
+
+    // Se reemplazan completos al recalcular, para que los lectores nunca vean
+    // un ranking a medio construir
+    private volatile Map<String, NavigableSet<Entry>> rankings = new ConcurrentHashMap<>();
+    private volatile Map<UUID, Entry> entries = new ConcurrentHashMap<>();
+    // Serializa las escrituras; las lecturas recorren los skip lists sin lock
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private volatile double priorMean;
+
+    public ServiceLeaderboard(RatingSummaryService ratingSummaryService, ServiceCatalog serviceCatalog,
+            @Value("${comments.leaderboard.prior-weight:10}") double priorWeight,
+            @Value("${comments.leaderboard.default-mean:3.0}") double defaultMean) {
+        this.ratingSummaryService = ratingSummaryService;
+        this.serviceCatalog = serviceCatalog;
+        this.priorWeight = priorWeight;
+        this.defaultMean = defaultMean;
+    }
+
+    @PostConstruct
+    public void init() {
+        serviceCatalog.addListener(this);
+        rebuild();
+    }
+
+    /**
+     * Recalcula todos los scores con el promedio global actual
+     */
+    @Scheduled(fixedDelayString = "${comments.leaderboard.rebuild-interval-ms:60000}")
+    public void rebuild() {
+        writeLock.lock();
+        try {
+            long count = 0;
+            BigDecimal sum = BigDecimal.ZERO;
+            List<UUID> rated = new ArrayList<>(ratingSummaryService.ratedServices());
+            for (UUID serviceId : rated) {
+                RatingSummaryDTO summary = ratingSummaryService.getSummary(serviceId);
+                count += summary.getCount();
+                sum = sum.add(summary.getSum());
+            }
+            priorMean = count > 0 ? sum.doubleValue() / count : defaultMean;
+
+            Map<String, NavigableSet<Entry>> rebuiltRankings = new ConcurrentHashMap<>();
+            Map<UUID, Entry> rebuiltEntries = new ConcurrentHashMap<>();
+            for (UUID serviceId : rated) {
+                update(serviceId, rebuiltRankings, rebuiltEntries);
+            }
+            rankings = rebuiltRankings;
+            entries = rebuiltEntries;
+        } finally {
+            writeLock.unlock();
+        }
+        log.debug("Ranking de servicios recalculado: {} servicios, promedio global {}", entries.size(), priorMean);
+    }
+
+    /**
+     * Reubica un servicio después de un cambio en sus calificaciones
+     */
+    public void onRatingsChanged(UUID serviceId) {
+        if (serviceId == null) {
+            return;
+        }
+        writeLock.lock();
+        try {
+            update(serviceId, rankings, entries);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void servicesChanged(Collection<UUID> serviceIds) {
+        writeLock.lock();
+        try {
+            for (UUID serviceId : serviceIds) {
+                update(serviceId, rankings, entries);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Los k servicios mejor calificados de una dimensión
+     *
+     * @param k           Cantidad de servicios
+     * @param category    Categoría (categoryName), o null
+     * @param countryCode País (countryCode), o null
+     */
+    public List<TopServiceDTO> top(int k, String category, String countryCode) {
+        NavigableSet<Entry> ranking = rankings.get(dimensionKey(category, countryCode));
+        if (ranking == null) {
+            return List.of();
+        }
+        List<TopServiceDTO> top = new ArrayList<>(k);
+        Iterator<Entry> iterator = ranking.iterator();
+        while (iterator.hasNext() && top.size() < k) {
+            Entry entry = iterator.next();
+            ServiceResponseDTO service = serviceCatalog.get(entry.serviceId());
+            if (service == null) {
+                // Expulsado del catálogo; el aviso asíncrono lo quitará del ranking
+                continue;
+            }
+            RatingSummaryDTO summary = ratingSummaryService.getSummary(entry.serviceId());
+            top.add(TopServiceDTO.builder()
+                    .rank(top.size() + 1)
+                    .serviceId(entry.serviceId().toString())
+                    .title(service.getTitle())
+                    .categoryName(service.getCategoryName())
+                    .countryCode(service.getCountryCode())
+                    .score(BigDecimal.valueOf(entry.score()).setScale(2, RoundingMode.HALF_UP))
+                    .average(summary.getAverage())
+                    .count(summary.getCount())
+                    .build());
+        }
+        return top;
+    }
+
+    // Debe llamarse con writeLock tomado
+    private void update(UUID serviceId, Map<String, NavigableSet<Entry>> targetRankings,
+            Map<UUID, Entry> targetEntries) {
+        Entry previous = targetEntries.remove(serviceId);
+        if (previous != null) {
+            for (String dimension : previous.dimensions()) {
+                targetRankings.get(dimension).remove(previous);
+            }
+        }
+
+        ServiceResponseDTO service = serviceCatalog.get(serviceId);
+        if (service == null || !service.isAvailable()) {
+            return;
+        }
+        RatingSummaryDTO summary = ratingSummaryService.getSummary(serviceId);
+        if (summary.getCount() == 0) {
+            return;
+        }
+
+        double score = (priorWeight * priorMean + summary.getSum().doubleValue())
+                / (priorWeight + summary.getCount());
+        Entry entry = new Entry(serviceId, score, dimensionsOf(service));
+        targetEntries.put(serviceId, entry);
+        for (String dimension : entry.dimensions()) {
+            targetRankings.computeIfAbsent(dimension, key -> new ConcurrentSkipListSet<>(BY_SCORE)).add(entry);
+        }
+    }
+
+    private static List<String> dimensionsOf(ServiceResponseDTO service) {
+        List<String> dimensions = new ArrayList<>(3);
+        dimensions.add(ALL);
+        if (service.getCategoryName() != null) {
+            dimensions.add(dimensionKey(service.getCategoryName(), null));
+        }
+        if (service.getCountryCode() != null) {
+            dimensions.add(dimensionKey(null, service.getCountryCode()));
+        }
+        return dimensions;
+    }
+
+    private static String dimensionKey(String category, String countryCode) {
+        if (category != null) {
+            return CATEGORY_PREFIX + category.trim().toLowerCase(Locale.ROOT);
+        }
+        if (countryCode != null) {
+            return COUNTRY_PREFIX + countryCode.trim().toLowerCase(Locale.ROOT);
+        }
+        return ALL;
+    }
+}
@@ -0,0 +1,83 @@
+package com.ms_example.comentarios.service;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ms_example.comentarios.dto.ServiceResponseDTO;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Búsqueda de servicios con lectura a través (read-through): si el servicio no
+ * está en el catálogo se solicita a marketplace vía Kafka sin bloquear al
+ * llamador. La respuesta llega por service-response-topic y el consumidor la
+ * guarda en el catálogo.
+ *
+ * Los servicios que marketplace responde que no encuentra se recuerdan por un
+ * tiempo breve, para que una ráfaga de IDs inválidos no inunde
+ * service-request-topic. Los fallos locales (timeout, rechazo o error de
+ * envío) no se recuerdan: no dicen nada del servicio, y recordarlos haría que
+ * una lentitud pasajera de marketplace siguiera devolviendo 404 después de
+ * recuperarse.
+ */
+@Service
+@Slf4j
+public class ServiceLookupService {
+
+    private final ServiceCatalog serviceCatalog;
+    private final KafkaMessagingService kafkaMessagingService;
+    private final Cache<UUID, Boolean> notFound;
+
+    public ServiceLookupService(ServiceCatalog serviceCatalog, KafkaMessagingService kafkaMessagingService,
+            @Value("${comments.service-request.negative-ttl:30s}") Duration negativeTtl,
+            @Value("${comments.service-request.negative-max-size:100000}") long negativeMaxSize) {
+        this.serviceCatalog = serviceCatalog;
+        this.kafkaMessagingService = kafkaMessagingService;
+        this.notFound = Caffeine.newBuilder()
+                .expireAfterWrite(negativeTtl)
+                .maximumSize(negativeMaxSize)
+                .build();
+    }
+
+    /**
+     * Busca un servicio en el catálogo y, si no está, en marketplace
+     *
+     * @return Future con el servicio, o con null si no existe
+     */
+    public CompletableFuture<ServiceResponseDTO> findService(UUID serviceId) {
+        ServiceResponseDTO cached = serviceCatalog.get(serviceId);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        if (notFound.getIfPresent(serviceId) != null) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        log.info("Servicio {} no está en el catálogo; consultando a marketplace", serviceId);
+        return kafkaMessagingService.requestServiceInfo(serviceId).thenApply(response -> {
+            if (response.getErrorMessage() != null || response.getServiceId() == null) {
+                log.warn("Servicio {} no disponible en marketplace: {}", serviceId, response.getErrorMessage());
+                if (!isLocalFailure(response)) {
+                    notFound.put(serviceId, Boolean.TRUE);
+                }
+                return null;
+            }
+            return response;
+        });
+    }
+
+    /**
+     * Error generado por KafkaMessagingService sin respuesta de marketplace
+     */
+    private static boolean isLocalFailure(ServiceResponseDTO response) {
+        return KafkaMessagingService.REJECTED_MESSAGE.equals(response.getErrorMessage())
+                || KafkaMessagingService.SEND_FAILED_MESSAGE.equals(response.getErrorMessage())
+                || KafkaMessagingService.TIMEOUT_MESSAGE.equals(response.getErrorMessage());
+    }
+}
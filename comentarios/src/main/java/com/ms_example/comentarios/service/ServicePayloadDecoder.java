@@ -0,0 +1,173 @@
+package com.ms_example.comentarios.service;
+
+import java.util.Arrays;
+
+/**
+ * Localiza el JSON de un mensaje de service-response-topic trabajando sobre
+ * los bytes del registro, sin convertirlos a String.
+ *
+ * Marketplace publica el JSON directo o codificado en Base64 (a veces entre
+ * comillas), y opcionalmente Smile (JSON binario de Jackson). El tipo se
+ * detecta por los primeros bytes: Smile por su encabezado ":)\n", JSON por
+ * el primer byte significativo. El JSON y el Smile directos se devuelven como
+ * una vista sobre el propio payload y el Base64 se decodifica en un buffer por
+ * hilo que se reutiliza entre mensajes.
+ */
+final class ServicePayloadDecoder {
+
+    /**
+     * Vista sobre los bytes JSON (o Smile, si smile es true) de un mensaje. Si
+     * apunta al buffer por hilo, solo es válida hasta la siguiente llamada a
+     * locateJson en el mismo hilo
+     */
+    record JsonView(byte[] bytes, int offset, int length, boolean smile) {
+    }
+
+    // Encabezado con el que Jackson inicia todo documento Smile
+    private static final byte[] SMILE_HEADER = { ':', ')', '\n' };
+
+    private static final int INITIAL_BUFFER_SIZE = 4 * 1024;
+    // Buffers mayores no se conservan, para no retener memoria por un mensaje atípico
+    private static final int MAX_RETAINED_BUFFER_SIZE = 1024 * 1024;
+    private static final ThreadLocal<byte[]> BUFFER = ThreadLocal.withInitial(() -> new byte[INITIAL_BUFFER_SIZE]);
+
+    private static final byte[] BASE64_VALUES = new byte[128];
+
+    static {
+        Arrays.fill(BASE64_VALUES, (byte) -1);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        for (int i = 0; i < alphabet.length(); i++) {
+            BASE64_VALUES[alphabet.charAt(i)] = (byte) i;
+        }
+    }
+
+    private ServicePayloadDecoder() {
+    }
+
+    /**
+     * Devuelve la vista del JSON contenido en el payload, o null si no es JSON,
+     * Smile ni Base64 de alguno de los dos
+     */
+    static JsonView locateJson(byte[] payload) {
+        // Los bytes finales de Smile pueden parecer espacios: no se recortan
+        if (isSmile(payload, payload.length)) {
+            return new JsonView(payload, 0, payload.length, true);
+        }
+        int start = 0;
+        int end = payload.length;
+        while (start < end && isWhitespace(payload[start])) {
+            start++;
+        }
+        while (end > start && isWhitespace(payload[end - 1])) {
+            end--;
+        }
+        if (start == end) {
+            return null;
+        }
+        if (payload[start] == '{') {
+            return new JsonView(payload, start, end - start, false);
+        }
+        if (end - start >= 2 && payload[start] == '"' && payload[end - 1] == '"') {
+            start++;
+            end--;
+        }
+
+        byte[] buffer = BUFFER.get();
+        int maxDecoded = (end - start) / 4 * 3 + 3;
+        if (buffer.length < maxDecoded) {
+            buffer = new byte[Math.max(maxDecoded, buffer.length * 2)];
+            if (buffer.length <= MAX_RETAINED_BUFFER_SIZE) {
+                BUFFER.set(buffer);
+            }
+        }
+        int decoded = decodeBase64(payload, start, end, buffer);
+        if (decoded < 0) {
+            return null;
+        }
+        if (isSmile(buffer, decoded)) {
+            return new JsonView(buffer, 0, decoded, true);
+        }
+        int jsonStart = 0;
+        while (jsonStart < decoded && isWhitespace(buffer[jsonStart])) {
+            jsonStart++;
+        }
+        if (jsonStart == decoded || buffer[jsonStart] != '{') {
+            return null;
+        }
+        return new JsonView(buffer, jsonStart, decoded - jsonStart, false);
+    }
+
+    private static boolean isSmile(byte[] bytes, int length) {
+        return length > SMILE_HEADER.length && bytes[0] == SMILE_HEADER[0] && bytes[1] == SMILE_HEADER[1]
+                && bytes[2] == SMILE_HEADER[2];
+    }
+
+    /**
+     * Decodifica Base64 estándar (relleno opcional) de src[from, to) en dst.
+     * Los saltos de línea del Base64 MIME se ignoran, tanto literales como
+     * escapados (\r, \n) dentro de un string JSON. Devuelve los bytes
+     * escritos, o -1 si la entrada no es Base64 válido
+     */
+    static int decodeBase64(byte[] src, int from, int to, byte[] dst) {
+        int end = to;
+        int padding = 0;
+        while (end > from && (src[end - 1] == '=' || isWhitespace(src[end - 1]))) {
+            if (src[end - 1] == '=') {
+                padding++;
+            }
+            end--;
+        }
+        if (padding > 2) {
+            return -1;
+        }
+
+        int out = 0;
+        int bits = 0;
+        int count = 0;
+        for (int i = from; i < end; i++) {
+            byte b = src[i];
+            if (b == '\n' || b == '\r') {
+                continue;
+            }
+            if (b == '\\' && i + 1 < end && (src[i + 1] == 'n' || src[i + 1] == 'r')) {
+                i++;
+                continue;
+            }
+            int value = value(b);
+            if (value < 0) {
+                return -1;
+            }
+            bits = (bits << 6) | value;
+            if (++count == 4) {
+                dst[out++] = (byte) (bits >> 16);
+                dst[out++] = (byte) (bits >> 8);
+                dst[out++] = (byte) bits;
+                bits = 0;
+                count = 0;
+            }
+        }
+
+        // Grupo final incompleto: 2 caracteres son 1 byte y 3 son 2
+        if (count == 1) {
+            return -1;
+        }
+        if (count == 2) {
+            dst[out++] = (byte) (bits >> 4);
+        } else if (count == 3) {
+            dst[out++] = (byte) (bits >> 10);
+            dst[out++] = (byte) (bits >> 2);
+        }
+        return out;
+    }
+
+    /**
+     * Valor de 6 bits del carácter, o -1 si no pertenece al alfabeto
+     */
+    private static int value(byte b) {
+        return b >= 0 ? BASE64_VALUES[b] : -1;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b >= 0 && b <= ' ';
+    }
+}
@@ -0,0 +1,69 @@
+package com.ms_example.comentarios.service;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+
+/**
+ * Versión de los comentarios de cada servicio, para construir ETags sin
+ * consultar la base de datos. Cada escritura asigna al servicio el siguiente
+ * valor de un contador global.
+ *
+ * Solo se recuerdan los servicios escritos recientemente. Un servicio sin
+ * entrada usa el piso: la mayor versión expulsada hasta ahora, que nunca es
+ * menor que la última versión que ese servicio tuvo. Así una expulsión puede
+ * invalidar ETags de más, pero nunca devuelve una versión ya usada para otro
+ * contenido.
+ *
+ * Los contadores viven en memoria, por lo que la época (aleatoria por
+ * arranque) forma parte del ETag.
+ */
+@Service
+public class ServiceVersions {
+
+    private final String epoch = Long.toHexString(ThreadLocalRandom.current().nextLong());
+    private final AtomicLong counter = new AtomicLong();
+    private final AtomicLong floor = new AtomicLong();
+    private final Cache<UUID, Long> versions;
+
+    public ServiceVersions(@Value("${comments.etag.max-tracked-services:100000}") long maxTrackedServices) {
+        this.versions = Caffeine.newBuilder()
+                .maximumSize(maxTrackedServices)
+                .evictionListener((UUID serviceUuid, Long version, RemovalCause cause) -> {
+                    if (version != null) {
+                        floor.accumulateAndGet(version, Math::max);
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * Identificador de este arranque; distingue ETags emitidos por procesos
+     * anteriores
+     */
+    public String epoch() {
+        return epoch;
+    }
+
+    public long version(UUID serviceUuid) {
+        Long version = versions.getIfPresent(serviceUuid);
+        return version != null ? version : floor.get();
+    }
+
+    /**
+     * Registra un cambio en los comentarios de un servicio
+     */
+    public void bump(UUID serviceUuid) {
+        if (serviceUuid != null) {
+            // Con escrituras concurrentes gana la versión mayor
+            versions.asMap().merge(serviceUuid, counter.incrementAndGet(), Math::max);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+-- Esquema inicial de comentarios y del outbox de eventos.
+-- Usa IF NOT EXISTS para adoptar bases creadas antes por ddl-auto: update.
+
+CREATE SEQUENCE IF NOT EXISTS comments_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS comment_outbox_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS comments (
+    id BIGINT NOT NULL,
+    service_uuid UUID,
+    service_id_hash BIGINT,
+    profile_id BIGINT,
+    rating NUMERIC(38, 2),
+    content VARCHAR(255) NOT NULL,
+    created_at TIMESTAMP(6),
+    PRIMARY KEY (id)
+);
+
+-- Paginación keyset por servicio y por perfil; los índices sobre service_uuid
+-- también resuelven la búsqueda exacta por UUID
+CREATE INDEX IF NOT EXISTS idx_comments_service_uuid_created ON comments (service_uuid, created_at, id);
+CREATE INDEX IF NOT EXISTS idx_comments_service_uuid_rating ON comments (service_uuid, rating, id);
+CREATE INDEX IF NOT EXISTS idx_comments_service_created ON comments (service_id_hash, created_at, id);
+CREATE INDEX IF NOT EXISTS idx_comments_service_rating ON comments (service_id_hash, rating, id);
+CREATE INDEX IF NOT EXISTS idx_comments_profile_created ON comments (profile_id, created_at, id);
+CREATE INDEX IF NOT EXISTS idx_comments_profile_rating ON comments (profile_id, rating, id);
+
+CREATE TABLE IF NOT EXISTS comment_outbox (
+    id BIGINT NOT NULL,
+    comment_id BIGINT NOT NULL,
+    service_uuid UUID,
+    payload CLOB NOT NULL,
+    created_at TIMESTAMP(6),
+    published_at TIMESTAMP(6),
+    attempts INTEGER NOT NULL,
+    PRIMARY KEY (id)
+);
+
+-- Eventos pendientes (published_at nulo) en orden de id para el relay
+CREATE INDEX IF NOT EXISTS idx_comment_outbox_pending ON comment_outbox (published_at, id);
@@ -0,0 +1,6 @@
+-- Eventos del outbox apartados tras agotar sus intentos de publicación
+ALTER TABLE comment_outbox ADD COLUMN IF NOT EXISTS parked_at TIMESTAMP(6);
+
+-- El relay busca los pendientes no apartados en orden de id
+DROP INDEX IF EXISTS idx_comment_outbox_pending;
+CREATE INDEX idx_comment_outbox_pending ON comment_outbox (published_at, parked_at, id);
@@ -16,7 +16,7 @@ import java.util.Map;
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.DEFINED_PORT)
 @ActiveProfiles("test")
 @EmbeddedKafka(partitions = 1, topics = { "service-response-topic-test",
-        "service-request-topic-test" }, brokerProperties = {
+        "service-request-topic-test", "comments-response" }, brokerProperties = {
                 "listeners=PLAINTEXT://localhost:9092",
                 "port=9092"
         })
@@ -1,14 +1,32 @@
 package com.ms_example.comentarios.integration_test;
 
+import com.ms_example.comentarios.dto.CommentResponseDTO;
 import com.ms_example.comentarios.model.Comment;
+import com.ms_example.comentarios.model.CommentOutboxEvent;
+import com.ms_example.comentarios.repository.CommentOutboxRepository;
 import com.ms_example.comentarios.repository.CommentRepository;
+import com.ms_example.comentarios.service.CommentSearchIndex;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
 import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.reactive.server.EntityExchangeResult;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -24,9 +42,22 @@ class CommentControllerIntegrationTest extends BaseIntegrationTest {
     @Autowired
     private CommentRepository commentRepository;
 
+    @Autowired
+    private CommentOutboxRepository commentOutboxRepository;
+
+    @Autowired
+    private CommentSearchIndex commentSearchIndex;
+
+    @Autowired
+    private EmbeddedKafkaBroker embeddedKafka;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     @AfterEach
     void end() {
         commentRepository.deleteAll();
+        commentOutboxRepository.deleteAll();
     }
 
     // Obtiene todos los comentarios
@@ -99,7 +130,7 @@ class CommentControllerIntegrationTest extends BaseIntegrationTest {
 
         assertNotNull(result);
         assertEquals(2, result.size());
-        assertTrue(result.stream().allMatch(c -> c.getServiceUuid().equals(String.valueOf(serviceId))));
+        assertTrue(result.stream().allMatch(c -> c.getServiceIdHash().equals(serviceId)));
     }
 
     
@@ -108,13 +139,17 @@ class CommentControllerIntegrationTest extends BaseIntegrationTest {
     @WithMockUser(username = "testuser", roles = { "USER" })
     void testGetCommentByServiceUuid() {
         UUID serviceUuid = UUID.fromString("9eb1b573-1fa1-4a1e-afbb-ccbffe0ed114");
-        Long serviceLongId = Math.abs((long) serviceUuid.hashCode());
+        // Otro servicio con el mismo hashCode: no debe mezclarse en los resultados
+        UUID collidingUuid = new UUID(serviceUuid.getLeastSignificantBits(), serviceUuid.getMostSignificantBits());
+        assertEquals(serviceUuid.hashCode(), collidingUuid.hashCode());
 
-        Comment comment1 = createTestComment(1L, serviceLongId, new BigDecimal("5.0"), "Excelente con UUID");
-        Comment comment2 = createTestComment(2L, serviceLongId, new BigDecimal("4.8"), "Casi perfecto");
+        Comment comment1 = createTestComment(1L, serviceUuid, new BigDecimal("5.0"), "Excelente con UUID");
+        Comment comment2 = createTestComment(2L, serviceUuid, new BigDecimal("4.8"), "Casi perfecto");
+        Comment comment3 = createTestComment(3L, collidingUuid, new BigDecimal("1.0"), "Otro servicio");
 
         commentRepository.save(comment1);
         commentRepository.save(comment2);
+        commentRepository.save(comment3);
 
         List<Comment> result = webTestClient.get()
                 .uri("/api/comments/service-uuid/" + serviceUuid.toString())
@@ -127,9 +162,111 @@ class CommentControllerIntegrationTest extends BaseIntegrationTest {
 
         assertNotNull(result);
         assertEquals(2, result.size());
+        assertTrue(result.stream().allMatch(c -> c.getServiceUuid().equals(serviceUuid)));
+    }
+
+    // Un GET condicional con el ETag vigente responde 304 hasta que el servicio recibe un comentario nuevo
+    @Test
+    @WithMockUser(username = "testuser", roles = { "USER" })
+    void testGetCommentByServiceUuidNotModified() {
+        UUID serviceUuid = UUID.randomUUID();
+        Map<String, Object> commentData = new HashMap<>();
+        commentData.put("profileId", 1L);
+        commentData.put("serviceUuid", serviceUuid.toString());
+        commentData.put("rating", 4.0);
+        commentData.put("content", "Primer comentario");
+
+        webTestClient.post()
+                .uri("/api/comments")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(commentData)
+                .exchange()
+                .expectStatus().isOk();
+
+        String eTag = webTestClient.get()
+                .uri("/api/comments/service-uuid/" + serviceUuid)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().exists("ETag")
+                .returnResult(String.class)
+                .getResponseHeaders()
+                .getETag();
+
+        webTestClient.get()
+                .uri("/api/comments/service-uuid/" + serviceUuid)
+                .ifNoneMatch(eTag)
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectBody().isEmpty();
+
+        // Otra página tiene su propio ETag
+        webTestClient.get()
+                .uri("/api/comments/service-uuid/" + serviceUuid + "?limit=5")
+                .ifNoneMatch(eTag)
+                .exchange()
+                .expectStatus().isOk();
+
+        commentData.put("content", "Segundo comentario");
+        webTestClient.post()
+                .uri("/api/comments")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(commentData)
+                .exchange()
+                .expectStatus().isOk();
+
+        List<Comment> result = webTestClient.get()
+                .uri("/api/comments/service-uuid/" + serviceUuid)
+                .ifNoneMatch(eTag)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Comment.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertNotNull(result);
+        assertEquals(2, result.size());
+    }
+
+    // Busca por texto con stemming en español y filtra por servicio
+    @Test
+    @WithMockUser(username = "testuser", roles = { "USER" })
+    void testSearchComments() throws Exception {
+        UUID serviceUuid = UUID.randomUUID();
+        UUID otherServiceUuid = UUID.randomUUID();
+        createViaApi(serviceUuid, "La limpieza de las habitaciones fue excelente");
+        createViaApi(serviceUuid, "Llegaron tarde, pero el servicio fue bueno");
+        createViaApi(otherServiceUuid, "Habitación limpia y cómoda");
+        commentSearchIndex.refresh();
+
+        List<Comment> result = webTestClient.get()
+                .uri("/api/comments/search?q=habitacion&serviceUuid=" + serviceUuid)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Comment.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertNotNull(result);
+        assertEquals(1, result.size());
+        assertEquals("La limpieza de las habitaciones fue excelente", result.get(0).getContent());
+
+        List<Comment> allServices = webTestClient.get()
+                .uri("/api/comments/search?q=habitaciones")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Comment.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertNotNull(allServices);
+        assertEquals(2, allServices.size());
+
+        webTestClient.get()
+                .uri("/api/comments/search?q= ")
+                .exchange()
+                .expectStatus().isBadRequest();
     }
 
-    
     // Obtiene comentarios por profileId
     @Test
     @WithMockUser(username = "testuser", roles = { "USER" })
@@ -162,8 +299,9 @@ class CommentControllerIntegrationTest extends BaseIntegrationTest {
     @Test
     @WithMockUser(username = "testuser", roles = { "USER" })
     void testCreateComment() {
+        UUID serviceUuid = UUID.fromString("0f5a3c1e-8d2b-4b7a-9c3e-5e1f2a3b4c5d");
         Map<String, Object> commentData = new HashMap<>();
-        commentData.put("serviceId", 12345L);
+        commentData.put("serviceUuid", serviceUuid.toString());
         commentData.put("profileId", 1L);
         commentData.put("rating", 4.5);
         commentData.put("content", "Este es un comentario de prueba creado vía POST");
@@ -182,11 +320,100 @@ class CommentControllerIntegrationTest extends BaseIntegrationTest {
         assertNotNull(result.getId());
         assertEquals("Este es un comentario de prueba creado vía POST", result.getContent());
         assertEquals(new BigDecimal("4.5"), result.getRating());
-        assertEquals("12345", result.getServiceUuid());
+        assertEquals(serviceUuid, result.getServiceUuid());
         assertEquals(1L, result.getProfileId());
         assertEquals(1, commentRepository.count());
     }
 
+
+    // El evento del comentario se registra en el outbox y el relay lo publica
+    @Test
+    @WithMockUser(username = "testuser", roles = { "USER" })
+    void testCreateCommentPublishesThroughOutbox() throws InterruptedException {
+        Map<String, Object> commentData = new HashMap<>();
+        commentData.put("serviceUuid", UUID.randomUUID().toString());
+        commentData.put("profileId", 1L);
+        commentData.put("rating", 4.0);
+        commentData.put("content", "Comentario publicado a través del outbox");
+
+        Comment result = webTestClient.post()
+                .uri("/api/comments")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(commentData)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Comment.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertNotNull(result);
+        List<CommentOutboxEvent> events = commentOutboxRepository.findAll();
+        assertEquals(1, events.size());
+        assertEquals(result.getId(), events.get(0).getCommentId());
+
+        waitForKafkaProcessing();
+        assertNotNull(commentOutboxRepository.findById(events.get(0).getId()).orElseThrow().getPublishedAt());
+    }
+
+    // Un evento ilegible se aparta en vez de bloquear a los que vienen detrás
+    @Test
+    @WithMockUser(username = "testuser", roles = { "USER" })
+    void testUnreadableOutboxEventIsParked() throws InterruptedException {
+        CommentOutboxEvent unreadable = new CommentOutboxEvent();
+        unreadable.setCommentId(-1L);
+        unreadable.setPayload("esto no es JSON");
+        unreadable = commentOutboxRepository.save(unreadable);
+
+        createViaApi(UUID.randomUUID(), "Comentario encolado después de un evento ilegible");
+        waitForKafkaProcessing();
+
+        CommentOutboxEvent parked = commentOutboxRepository.findById(unreadable.getId()).orElseThrow();
+        assertNotNull(parked.getParkedAt());
+        assertNull(parked.getPublishedAt());
+        assertEquals(1, parked.getAttempts());
+
+        List<CommentOutboxEvent> published = commentOutboxRepository.findAll().stream()
+                .filter(event -> !event.getId().equals(parked.getId()))
+                .toList();
+        assertEquals(1, published.size());
+        assertNotNull(published.get(0).getPublishedAt());
+        assertNull(published.get(0).getParkedAt());
+    }
+
+    // Los eventos de un servicio llevan su UUID como clave y caen en la misma
+    // partición; el valor es el JSON del evento tal cual, sin envolver en Base64
+    @Test
+    @WithMockUser(username = "testuser", roles = { "USER" })
+    void testCommentEventsAreKeyedByService() throws Exception {
+        UUID serviceUuid = UUID.randomUUID();
+        createViaApi(serviceUuid, "Primer comentario");
+        createViaApi(serviceUuid, "Segundo comentario");
+        createViaApi(serviceUuid, "Tercer comentario");
+
+        Map<String, Object> props = KafkaTestUtils.consumerProps("comments-response-test", "false", embeddedKafka);
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        try (Consumer<String, byte[]> consumer = new DefaultKafkaConsumerFactory<>(props,
+                new StringDeserializer(), new ByteArrayDeserializer()).createConsumer()) {
+            embeddedKafka.consumeFromAnEmbeddedTopic(consumer, "comments-response");
+            ConsumerRecords<String, byte[]> records = KafkaTestUtils.getRecords(consumer, Duration.ofSeconds(10), 3);
+
+            assertEquals(3, records.count());
+            Integer partition = null;
+            for (ConsumerRecord<String, byte[]> record : records) {
+                assertEquals(serviceUuid.toString(), record.key());
+                // Lo que llega al broker es el objeto JSON, no un string con su Base64
+                assertEquals((byte) '{', record.value()[0]);
+                assertEquals(record.value().length, record.serializedValueSize());
+                CommentResponseDTO event = objectMapper.readValue(record.value(), CommentResponseDTO.class);
+                assertEquals(serviceUuid.toString(), event.getServiceUuid());
+                if (partition == null) {
+                    partition = record.partition();
+                }
+                assertEquals(partition, record.partition());
+            }
+        }
+    }
+
     
     // Actualiza un comentario existente
     @Test
@@ -221,6 +448,41 @@ class CommentControllerIntegrationTest extends BaseIntegrationTest {
         assertEquals("Comentario actualizado - ahora es excelente", updated.getContent());
     }
 
+    // Una lectura en caché refleja la actualización posterior
+    @Test
+    @WithMockUser(username = "testuser", roles = { "USER" })
+    void testGetCommentByIdAfterUpdate() {
+        Comment saved = commentRepository.save(
+                createTestComment(1L, UUID.randomUUID(), new BigDecimal("3.0"), "Antes de editar"));
+
+        webTestClient.get()
+                .uri("/api/comments/" + saved.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.content").isEqualTo("Antes de editar");
+
+        Map<String, Object> updatedData = new HashMap<>();
+        updatedData.put("serviceUuid", saved.getServiceUuid().toString());
+        updatedData.put("profileId", 1L);
+        updatedData.put("rating", 4.0);
+        updatedData.put("content", "Después de editar");
+
+        webTestClient.put()
+                .uri("/api/comments/update/" + saved.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(updatedData)
+                .exchange()
+                .expectStatus().isOk();
+
+        webTestClient.get()
+                .uri("/api/comments/" + saved.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.content").isEqualTo("Después de editar");
+    }
+
     
     // Elimina un comentario existente
     @Test
@@ -250,9 +512,190 @@ class CommentControllerIntegrationTest extends BaseIntegrationTest {
     private Comment createTestComment(Long profileId, Long serviceId, BigDecimal rating, String content) {
         Comment comment = new Comment();
         comment.setProfileId(profileId);
-        comment.setServiceUuid(String.valueOf(serviceId));
+        comment.setServiceIdHash(serviceId);
         comment.setRating(rating);
         comment.setContent(content);
         return comment;
     }
+
+    // Recorre las páginas con X-Next-Cursor en orden reciente: createdAt DESC
+    // y, con la misma fecha, id DESC
+    @Test
+    @WithMockUser(username = "testuser", roles = { "USER" })
+    void testPaginationByRecentFollowsCursor() {
+        insertPaginationComments(77L, UUID.randomUUID());
+
+        List<List<Long>> pages = walkPages("/api/comments/profile-id/77?limit=2&sort=recent");
+
+        assertEquals(List.of(List.of(105L, 103L), List.of(102L, 101L), List.of(104L)), pages);
+    }
+
+    // Orden por rating: rating DESC con los comentarios sin rating al final
+    // (NULLS LAST) y desempate por id DESC
+    @Test
+    @WithMockUser(username = "testuser", roles = { "USER" })
+    void testPaginationByRatingFollowsCursor() {
+        insertPaginationComments(78L, UUID.randomUUID());
+
+        List<List<Long>> pages = walkPages("/api/comments/profile-id/78?limit=2&sort=rating");
+
+        assertEquals(List.of(List.of(104L, 102L), List.of(101L, 105L), List.of(103L)), pages);
+    }
+
+    // La primera página por servicio sale de la caché y las siguientes de la base
+    @Test
+    @WithMockUser(username = "testuser", roles = { "USER" })
+    void testPaginationByServiceUuidFollowsCursor() {
+        UUID serviceUuid = UUID.randomUUID();
+        insertPaginationComments(79L, serviceUuid);
+
+        List<List<Long>> pages = walkPages("/api/comments/service-uuid/" + serviceUuid + "?limit=2&sort=rating");
+
+        assertEquals(List.of(List.of(104L, 102L), List.of(101L, 105L), List.of(103L)), pages);
+    }
+
+    // Sin limit se devuelven 20 comentarios por página, no todos
+    @Test
+    @WithMockUser(username = "testuser", roles = { "USER" })
+    void testPaginationDefaultPageSize() {
+        UUID serviceUuid = UUID.randomUUID();
+        LocalDateTime createdAt = LocalDateTime.of(2025, 1, 1, 12, 0);
+        for (long id = 1; id <= 25; id++) {
+            insertComment(id, serviceUuid, 80L, new BigDecimal("4.0"), createdAt.plusMinutes(id));
+        }
+
+        List<List<Long>> pages = walkPages("/api/comments/profile-id/80");
+
+        assertEquals(2, pages.size());
+        assertEquals(20, pages.get(0).size());
+        assertEquals(5, pages.get(1).size());
+        assertEquals(25L, pages.get(0).get(0));
+        assertEquals(1L, pages.get(1).get(4));
+    }
+
+    // Un cursor mal formado o generado con otro ordenamiento se rechaza con 400
+    @Test
+    @WithMockUser(username = "testuser", roles = { "USER" })
+    void testPaginationRejectsInvalidCursor() {
+        insertPaginationComments(81L, UUID.randomUUID());
+
+        webTestClient.get()
+                .uri("/api/comments/profile-id/81?after=no-es-un-cursor")
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        String recentCursor = webTestClient.get()
+                .uri("/api/comments/profile-id/81?limit=2&sort=recent")
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(String.class)
+                .getResponseHeaders()
+                .getFirst("X-Next-Cursor");
+        assertNotNull(recentCursor);
+
+        webTestClient.get()
+                .uri("/api/comments/profile-id/81?limit=2&sort=rating&after=" + recentCursor)
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        webTestClient.get()
+                .uri("/api/comments/profile-id/81?sort=popular")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    // limit debe estar entre 1 y 100
+    @Test
+    @WithMockUser(username = "testuser", roles = { "USER" })
+    void testPaginationRejectsLimitOutOfRange() {
+        UUID serviceUuid = UUID.randomUUID();
+
+        webTestClient.get()
+                .uri("/api/comments/profile-id/82?limit=0")
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        webTestClient.get()
+                .uri("/api/comments/service-uuid/" + serviceUuid + "?limit=101")
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        webTestClient.get()
+                .uri("/api/comments/profile-id/82?limit=100")
+                .exchange()
+                .expectStatus().isOk();
+    }
+
+    /**
+     * Cinco comentarios con fechas repetidas y ratings nulos:
+     * 101 y 102 (10:00, 4.0), 103 (10:00, sin rating), 104 (09:00, 5.0) y
+     * 105 (11:00, sin rating)
+     */
+    private void insertPaginationComments(Long profileId, UUID serviceUuid) {
+        LocalDateTime ten = LocalDateTime.of(2025, 1, 1, 10, 0);
+        insertComment(101L, serviceUuid, profileId, new BigDecimal("4.0"), ten);
+        insertComment(102L, serviceUuid, profileId, new BigDecimal("4.0"), ten);
+        insertComment(103L, serviceUuid, profileId, null, ten);
+        insertComment(104L, serviceUuid, profileId, new BigDecimal("5.0"), ten.minusHours(1));
+        insertComment(105L, serviceUuid, profileId, null, ten.plusHours(1));
+    }
+
+    // Inserta con fecha e id explícitos, sin pasar por @CreationTimestamp
+    private void insertComment(Long id, UUID serviceUuid, Long profileId, BigDecimal rating, LocalDateTime createdAt) {
+        jdbcTemplate.update("INSERT INTO comments (id, service_uuid, service_id_hash, profile_id, rating, content, "
+                + "created_at) VALUES (?, ?, ?, ?, ?, ?, ?)",
+                id, serviceUuid, Math.abs((long) serviceUuid.hashCode()), profileId, rating,
+                "Comentario " + id, createdAt);
+    }
+
+    /**
+     * Pide la primera página y sigue X-Next-Cursor hasta que no venga; devuelve
+     * los ids de cada página
+     */
+    private List<List<Long>> walkPages(String firstPageUri) {
+        List<List<Long>> pages = new ArrayList<>();
+        String uri = firstPageUri;
+        while (uri != null) {
+            EntityExchangeResult<List<Comment>> result = webTestClient.get()
+                    .uri(uri)
+                    .accept(MediaType.APPLICATION_JSON)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBodyList(Comment.class)
+                    .returnResult();
+            assertNotNull(result.getResponseBody());
+            pages.add(result.getResponseBody().stream().map(Comment::getId).toList());
+
+            String nextCursor = result.getResponseHeaders().getFirst("X-Next-Cursor");
+            uri = nextCursor == null ? null
+                    : firstPageUri + (firstPageUri.contains("?") ? "&" : "?") + "after=" + nextCursor;
+            assertTrue(pages.size() <= 10, "La paginación no termina");
+        }
+        return pages;
+    }
+
+    private Comment createTestComment(Long profileId, UUID serviceUuid, BigDecimal rating, String content) {
+        Comment comment = new Comment();
+        comment.setProfileId(profileId);
+        comment.setServiceUuid(serviceUuid);
+        comment.setServiceIdHash(Math.abs((long) serviceUuid.hashCode()));
+        comment.setRating(rating);
+        comment.setContent(content);
+        return comment;
+    }
+
+    private void createViaApi(UUID serviceUuid, String content) {
+        Map<String, Object> commentData = new HashMap<>();
+        commentData.put("serviceUuid", serviceUuid.toString());
+        commentData.put("profileId", 1L);
+        commentData.put("rating", 4.0);
+        commentData.put("content", content);
+
+        webTestClient.post()
+                .uri("/api/comments")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(commentData)
+                .exchange()
+                .expectStatus().isOk();
+    }
 }
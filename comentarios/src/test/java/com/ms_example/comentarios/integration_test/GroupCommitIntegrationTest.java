@@ -0,0 +1,120 @@
+package com.ms_example.comentarios.integration_test;
+
+import com.ms_example.comentarios.dto.ServiceResponseDTO;
+import com.ms_example.comentarios.model.Comment;
+import com.ms_example.comentarios.repository.CommentRepository;
+import com.ms_example.comentarios.service.ServiceCatalog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Creación de comentarios con group commit (comments.group-commit.enabled),
+ * que por defecto está desactivado
+ */
+@TestPropertySource(properties = "comments.group-commit.enabled=true")
+class GroupCommitIntegrationTest extends BaseIntegrationTest {
+
+    @Autowired
+    private KafkaTemplate<String, String> kafkaTemplate;
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Autowired
+    private ServiceCatalog serviceCatalog;
+
+    private static final String SERVICE_RESPONSE_TOPIC = "service-response-topic-test";
+
+    @BeforeEach
+    @Override
+    void init() {
+        super.init();
+        serviceCatalog.clear();
+    }
+
+    @AfterEach
+    void end() {
+        serviceCatalog.clear();
+        commentRepository.deleteAll();
+    }
+
+    // Las inserciones concurrentes se escriben en lotes y cada una recibe su
+    // propio id
+    @Test
+    @WithMockUser(username = "testuser", roles = { "USER" })
+    void testCreateCommentsConcurrently() throws Exception {
+        UUID serviceId = UUID.fromString("56565656-5656-5656-5656-565656565656");
+        publishServiceToKafka(createTestService(serviceId, "Servicio Concurrido", new BigDecimal("80.00")));
+        waitForKafkaProcessing();
+
+        int requests = 40;
+        ExecutorService clients = Executors.newFixedThreadPool(requests);
+        List<Future<Comment>> futures = new ArrayList<>();
+        for (int i = 0; i < requests; i++) {
+            Map<String, Object> commentData = createTestData(
+                    "serviceId", serviceId.toString(),
+                    "profileId", (long) i,
+                    "rating", 4.0,
+                    "content", "Comentario concurrente número " + i);
+            futures.add(clients.submit(() -> webTestClient.post()
+                    .uri("/api/services/" + serviceId + "/comments")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(commentData)
+                    .exchange()
+                    .expectStatus().isCreated()
+                    .expectBody(Comment.class)
+                    .returnResult()
+                    .getResponseBody()));
+        }
+        List<Long> ids = new ArrayList<>();
+        for (Future<Comment> future : futures) {
+            Comment created = future.get();
+            assertNotNull(created);
+            assertNotNull(created.getId());
+            ids.add(created.getId());
+        }
+        clients.shutdown();
+
+        assertEquals(requests, ids.stream().distinct().count());
+        assertEquals(requests, commentRepository.findByServiceUuid(serviceId).size());
+    }
+
+    private ServiceResponseDTO createTestService(UUID id, String title, BigDecimal price) {
+        ServiceResponseDTO service = new ServiceResponseDTO();
+        service.setId(id);
+        service.setServiceId(id.toString());
+        service.setTitle(title);
+        service.setDescription("Descripción de " + title);
+        service.setPrice(price);
+        service.setAverageRating(4.5);
+        service.setIsActive(true);
+        service.setCategoryName("Test Category");
+        service.setUserId("test-user-id");
+        service.setEventType("CREATED");
+        return service;
+    }
+
+    private void publishServiceToKafka(ServiceResponseDTO service) throws Exception {
+        String jsonPayload = objectMapper.writeValueAsString(service);
+        String encodedPayload = Base64.getEncoder().encodeToString(jsonPayload.getBytes());
+        kafkaTemplate.send(SERVICE_RESPONSE_TOPIC, encodedPayload);
+    }
+}
@@ -0,0 +1,157 @@
+package com.ms_example.comentarios.integration_test;
+
+import com.nimbusds.jose.JOSEObjectType;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests de integración de la autenticación JWT contra un JWK set local
+ */
+class JwtAuthenticationIntegrationTest extends BaseIntegrationTest {
+
+    private static final String ISSUER = "http://localhost/realms/microservices-ecosystem";
+
+    private static final RSAKey SIGNING_KEY = generateKey("test-key");
+    private static final AtomicInteger JWK_REQUESTS = new AtomicInteger();
+    private static final HttpServer JWK_SERVER = startJwkServer();
+
+    @DynamicPropertySource
+    static void jwtProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.security.oauth2.resourceserver.jwt.jwk-set-uri",
+                () -> "http://localhost:" + JWK_SERVER.getAddress().getPort() + "/certs");
+        registry.add("spring.security.oauth2.resourceserver.jwt.issuer-uri", () -> ISSUER);
+    }
+
+    @AfterAll
+    static void stopJwkServer() {
+        JWK_SERVER.stop(0);
+    }
+
+    // Un token válido con roles de realm autentica la petición
+    @Test
+    void testValidTokenIsAccepted() throws Exception {
+        String token = token(SIGNING_KEY, Instant.now().plusSeconds(300));
+
+        webTestClient.get()
+                .uri("/api/comments")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk();
+    }
+
+    // Las llaves se reutilizan: repetir peticiones no vuelve a descargar el JWK set
+    @Test
+    void testJwkSetIsCached() throws Exception {
+        String token = token(SIGNING_KEY, Instant.now().plusSeconds(300));
+
+        webTestClient.get()
+                .uri("/api/comments")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .exchange()
+                .expectStatus().isOk();
+        int requestsAfterFirstCall = JWK_REQUESTS.get();
+
+        for (int i = 0; i < 5; i++) {
+            webTestClient.get()
+                    .uri("/api/comments")
+                    .header(HttpHeaders.AUTHORIZATION, "Bearer " + token(SIGNING_KEY, Instant.now().plusSeconds(300)))
+                    .exchange()
+                    .expectStatus().isOk();
+        }
+
+        assertTrue(requestsAfterFirstCall >= 1);
+        assertEquals(requestsAfterFirstCall, JWK_REQUESTS.get());
+    }
+
+    // Un token expirado se rechaza
+    @Test
+    void testExpiredTokenIsRejected() throws Exception {
+        String token = token(SIGNING_KEY, Instant.now().minusSeconds(600));
+
+        webTestClient.get()
+                .uri("/api/comments")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .exchange()
+                .expectStatus().isUnauthorized();
+    }
+
+    // Un token firmado con una llave que no está en el JWK set se rechaza
+    @Test
+    void testTokenWithUnknownKeyIsRejected() throws Exception {
+        String token = token(generateKey("unknown-key"), Instant.now().plusSeconds(300));
+
+        webTestClient.get()
+                .uri("/api/comments")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .exchange()
+                .expectStatus().isUnauthorized();
+    }
+
+    private static String token(RSAKey key, Instant expiresAt) throws Exception {
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .jwtID(UUID.randomUUID().toString())
+                .issuer(ISSUER)
+                .subject("testuser")
+                .issueTime(Date.from(Instant.now().minusSeconds(900)))
+                .expirationTime(Date.from(expiresAt))
+                .claim("realm_access", Map.of("roles", List.of("USER")))
+                .build();
+        SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256)
+                .keyID(key.getKeyID())
+                .type(JOSEObjectType.JWT)
+                .build(), claims);
+        jwt.sign(new RSASSASigner(key));
+        return jwt.serialize();
+    }
+
+    private static RSAKey generateKey(String keyId) {
+        try {
+            return new RSAKeyGenerator(2048).keyID(keyId).generate();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static HttpServer startJwkServer() {
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+            byte[] body = new JWKSet(SIGNING_KEY.toPublicJWK()).toString().getBytes(StandardCharsets.UTF_8);
+            server.createContext("/certs", exchange -> {
+                JWK_REQUESTS.incrementAndGet();
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, body.length);
+                exchange.getResponseBody().write(body);
+                exchange.close();
+            });
+            server.start();
+            return server;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
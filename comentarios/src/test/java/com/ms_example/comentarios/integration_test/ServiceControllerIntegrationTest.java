@@ -1,24 +1,43 @@
 package com.ms_example.comentarios.integration_test;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.ms_example.comentarios.dto.BatchCommentResponseDTO;
+import com.ms_example.comentarios.dto.BatchCommentResultDTO;
+import com.ms_example.comentarios.dto.RatingSummaryDTO;
+import com.ms_example.comentarios.dto.ServiceRequestDTO;
 import com.ms_example.comentarios.dto.ServiceResponseDTO;
+import com.ms_example.comentarios.dto.TopServiceDTO;
 import com.ms_example.comentarios.model.Comment;
 import com.ms_example.comentarios.repository.CommentRepository;
-import com.ms_example.comentarios.service.ServiceKafkaConsumer;
+import com.ms_example.comentarios.service.ServiceCatalog;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.serialization.StringDeserializer;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
 import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.reactive.server.WebTestClient;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -34,18 +53,25 @@ class ServiceControllerIntegrationTest extends BaseIntegrationTest {
     @Autowired
     private CommentRepository commentRepository;
 
+    @Autowired
+    private ServiceCatalog serviceCatalog;
+
+    @Autowired
+    private EmbeddedKafkaBroker embeddedKafka;
+
     private static final String SERVICE_RESPONSE_TOPIC = "service-response-topic-test";
+    private static final String SERVICE_REQUEST_TOPIC = "service-request-topic-test";
 
     @BeforeEach
     @Override
     void init() {
         super.init();
-        ServiceKafkaConsumer.clearServicesList();
+        serviceCatalog.clear();
     }
 
     @AfterEach
     void end() {
-        ServiceKafkaConsumer.clearServicesList();
+        serviceCatalog.clear();
         commentRepository.deleteAll();
     }
 
@@ -76,7 +102,7 @@ class ServiceControllerIntegrationTest extends BaseIntegrationTest {
 
         assertNotNull(result);
         assertTrue(result.size() >= 2);
-        assertEquals(2, ServiceKafkaConsumer.getAvailableServicesCount());
+        assertEquals(2, serviceCatalog.size());
     }
 
     @Test
@@ -106,6 +132,31 @@ class ServiceControllerIntegrationTest extends BaseIntegrationTest {
         assertEquals(new BigDecimal("150.50"), result.getPrice());
     }
 
+    // Un servicio publicado en Smile (binario) se ingesta igual que uno en JSON
+    @Test
+    @WithMockUser(username = "testuser", roles = { "USER" })
+    void testGetServiceByIdPublishedAsSmile() throws Exception {
+        UUID serviceId = UUID.randomUUID();
+        ServiceResponseDTO service = createTestService(serviceId, "Servicio en Smile", new BigDecimal("99.90"));
+
+        byte[] smilePayload = objectMapper.copyWith(new SmileFactory()).writeValueAsBytes(service);
+        kafkaTemplate.send(SERVICE_RESPONSE_TOPIC, Base64.getEncoder().encodeToString(smilePayload));
+        waitForKafkaProcessing();
+
+        ServiceResponseDTO result = webTestClient.get()
+                .uri("/api/services/" + serviceId)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(ServiceResponseDTO.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertNotNull(result);
+        assertEquals("Servicio en Smile", result.getTitle());
+        assertEquals(new BigDecimal("99.90"), result.getPrice());
+    }
+
     @Test
     @WithMockUser(username = "testuser", roles = { "USER" })
     void testGetServiceById_NotFound() {
@@ -139,7 +190,7 @@ class ServiceControllerIntegrationTest extends BaseIntegrationTest {
 
         assertNotNull(result);
         assertTrue(result);
-        assertTrue(ServiceKafkaConsumer.isServiceAvailable(serviceId));
+        assertTrue(serviceCatalog.contains(serviceId));
     }
 
     @Test
@@ -166,7 +217,7 @@ class ServiceControllerIntegrationTest extends BaseIntegrationTest {
 
         assertNotNull(result);
         assertEquals(5, result);
-        assertEquals(5, ServiceKafkaConsumer.getAvailableServicesCount());
+        assertEquals(5, serviceCatalog.size());
     }
 
     @Test
@@ -179,7 +230,7 @@ class ServiceControllerIntegrationTest extends BaseIntegrationTest {
         publishServiceToKafka(service);
         waitForKafkaProcessing();
 
-        assertTrue(ServiceKafkaConsumer.getAvailableServicesCount() > 0);
+        assertTrue(serviceCatalog.size() > 0);
 
         String result = webTestClient.delete()
                 .uri("/api/services/clear")
@@ -192,7 +243,30 @@ class ServiceControllerIntegrationTest extends BaseIntegrationTest {
 
         assertNotNull(result);
         assertEquals("Lista de servicios limpiada exitosamente", result);
-        assertEquals(0, ServiceKafkaConsumer.getAvailableServicesCount());
+        assertEquals(0, serviceCatalog.size());
+    }
+
+    @Test
+    @WithMockUser(username = "testuser", roles = { "USER" })
+    void testDeletedEventRemovesService() throws Exception {
+        UUID serviceId = UUID.fromString("77777777-7777-7777-7777-777777777777");
+        ServiceResponseDTO service = createTestService(serviceId, "Servicio Eliminado", new BigDecimal("60.00"));
+        publishServiceToKafka(service);
+        waitForKafkaProcessing();
+
+        assertTrue(serviceCatalog.contains(serviceId));
+
+        service.setEventType("DELETED");
+        publishServiceToKafka(service);
+        waitForKafkaProcessing();
+
+        webTestClient.get()
+                .uri("/api/services/" + serviceId)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isNotFound();
+
+        assertFalse(serviceCatalog.contains(serviceId));
     }
 
     @Test
@@ -208,7 +282,7 @@ class ServiceControllerIntegrationTest extends BaseIntegrationTest {
         publishServiceToKafka(service);
         waitForKafkaProcessing();
 
-        assertTrue(ServiceKafkaConsumer.isServiceAvailable(serviceId));
+        assertTrue(serviceCatalog.contains(serviceId));
 
         Map<String, Object> commentData = new HashMap<>();
         commentData.put("serviceId", serviceId.toString());
@@ -234,6 +308,221 @@ class ServiceControllerIntegrationTest extends BaseIntegrationTest {
         assertEquals(1, commentRepository.count());
     }
 
+    // Un servicio que no está en el catálogo se pide a marketplace; la petición
+    // queda pendiente hasta que la respuesta llega por service-response-topic
+    @Test
+    @WithMockUser(username = "testuser", roles = { "USER" })
+    void testCreateCommentReadsThroughToMarketplace() throws Exception {
+        UUID serviceId = UUID.fromString("57575757-5757-5757-5757-575757575757");
+        assertFalse(serviceCatalog.contains(serviceId));
+
+        try (Consumer<String, String> serviceRequests = serviceRequestConsumer()) {
+            CompletableFuture<ServiceRequestDTO> replied = replyToNextServiceRequest(serviceRequests, request -> {
+                ServiceResponseDTO reply = createTestService(serviceId, "Servicio de Marketplace",
+                        new BigDecimal("45.00"));
+                reply.setRequestId(request.getRequestId());
+                return reply;
+            });
+
+            Comment result = webTestClient.mutate()
+                    .responseTimeout(Duration.ofSeconds(30))
+                    .build()
+                    .post()
+                    .uri("/api/services/" + serviceId + "/comments")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(commentData(serviceId))
+                    .exchange()
+                    .expectStatus().isCreated()
+                    .expectBody(Comment.class)
+                    .returnResult()
+                    .getResponseBody();
+
+            assertEquals(serviceId, replied.get(30, TimeUnit.SECONDS).getServiceId());
+            assertNotNull(result);
+            assertNotNull(result.getId());
+            assertEquals(1, commentRepository.findByServiceUuid(serviceId).size());
+            // La respuesta también quedó en el catálogo
+            assertTrue(serviceCatalog.contains(serviceId));
+        }
+    }
+
+    // Si marketplace responde que el servicio no existe se devuelve 404, y la
+    // siguiente petición se responde desde la caché negativa sin volver a preguntar
+    @Test
+    @WithMockUser(username = "testuser", roles = { "USER" })
+    void testCreateCommentForUnknownServiceIsNotFoundAndCached() throws Exception {
+        UUID serviceId = UUID.fromString("58585858-5858-5858-5858-585858585858");
+
+        try (Consumer<String, String> serviceRequests = serviceRequestConsumer()) {
+            CompletableFuture<ServiceRequestDTO> replied = replyToNextServiceRequest(serviceRequests, request -> {
+                ServiceResponseDTO reply = new ServiceResponseDTO();
+                reply.setRequestId(request.getRequestId());
+                reply.setServiceId(serviceId.toString());
+                reply.setErrorMessage("Servicio no encontrado");
+                return reply;
+            });
+
+            WebTestClient client = webTestClient.mutate().responseTimeout(Duration.ofSeconds(30)).build();
+            client.post()
+                    .uri("/api/services/" + serviceId + "/comments")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(commentData(serviceId))
+                    .exchange()
+                    .expectStatus().isNotFound();
+            assertEquals(serviceId, replied.get(30, TimeUnit.SECONDS).getServiceId());
+
+            client.post()
+                    .uri("/api/services/" + serviceId + "/comments")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(commentData(serviceId))
+                    .exchange()
+                    .expectStatus().isNotFound();
+
+            assertTrue(KafkaTestUtils.getRecords(serviceRequests, Duration.ofSeconds(2)).isEmpty());
+            assertEquals(0, commentRepository.count());
+        }
+    }
+
+    @Test
+    @WithMockUser(username = "testuser", roles = { "USER" })
+    void testCreateCommentsBatch() throws Exception {
+        UUID serviceId = UUID.fromString("88888888-8888-8888-8888-888888888888");
+        publishServiceToKafka(createTestService(serviceId, "Servicio En Lote", new BigDecimal("90.00")));
+        waitForKafkaProcessing();
+
+        List<Map<String, Object>> batch = List.of(
+                batchItem(serviceId, 5.0, "Primer comentario creado en lote"),
+                batchItem(UUID.randomUUID(), 4.0, "Comentario para un servicio inexistente"),
+                batchItem(serviceId, 7.5, "Comentario con un rating fuera de rango"),
+                batchItem(serviceId, 3.0, "Segundo comentario creado en lote"));
+
+        BatchCommentResponseDTO result = webTestClient.post()
+                .uri("/api/services/comments:batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(batch)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(BatchCommentResponseDTO.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertNotNull(result);
+        assertEquals(2, result.getCreated());
+        assertEquals(2, result.getRejected());
+        assertEquals(BatchCommentResultDTO.Status.CREATED, result.getResults().get(0).getStatus());
+        assertEquals(BatchCommentResultDTO.Status.SERVICE_NOT_FOUND, result.getResults().get(1).getStatus());
+        assertEquals(BatchCommentResultDTO.Status.INVALID, result.getResults().get(2).getStatus());
+        assertEquals(BatchCommentResultDTO.Status.CREATED, result.getResults().get(3).getStatus());
+        assertNotNull(result.getResults().get(3).getCommentId());
+        assertEquals(2, commentRepository.findByServiceUuid(serviceId).size());
+    }
+
+    @Test
+    @WithMockUser(username = "testuser", roles = { "USER" })
+    void testGetRatingSummary() throws Exception {
+        UUID serviceId = UUID.fromString("66666666-6666-6666-6666-666666666666");
+        ServiceResponseDTO service = createTestService(serviceId, "Servicio Calificado", new BigDecimal("80.00"));
+        publishServiceToKafka(service);
+        waitForKafkaProcessing();
+
+        for (double rating : new double[] { 5.0, 4.5, 2.0 }) {
+            Map<String, Object> commentData = new HashMap<>();
+            commentData.put("serviceId", serviceId.toString());
+            commentData.put("profileId", 1L);
+            commentData.put("rating", rating);
+            commentData.put("content", "Comentario calificado con " + rating + " estrellas");
+
+            webTestClient.post()
+                    .uri("/api/services/" + serviceId + "/comments")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(commentData)
+                    .exchange()
+                    .expectStatus().isCreated();
+        }
+
+        RatingSummaryDTO result = webTestClient.get()
+                .uri("/api/services/" + serviceId + "/rating-summary")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(RatingSummaryDTO.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertNotNull(result);
+        assertEquals(3, result.getCount());
+        assertEquals(new BigDecimal("3.83"), result.getAverage());
+        assertArrayEquals(new long[] { 0, 0, 1, 0, 1, 1 }, result.getHistogram());
+    }
+
+    @Test
+    @WithMockUser(username = "testuser", roles = { "USER" })
+    void testGetTopServices() throws Exception {
+        UUID wellRated = UUID.fromString("aaaaaaaa-0000-0000-0000-000000000001");
+        UUID singleRating = UUID.fromString("aaaaaaaa-0000-0000-0000-000000000002");
+        UUID otherCategory = UUID.fromString("aaaaaaaa-0000-0000-0000-000000000003");
+        publishServiceToKafka(createTestService(wellRated, "Muchas Calificaciones", new BigDecimal("10.00")));
+        publishServiceToKafka(createTestService(singleRating, "Una Calificación", new BigDecimal("20.00")));
+        ServiceResponseDTO hogar = createTestService(otherCategory, "Servicio de Hogar", new BigDecimal("30.00"));
+        hogar.setCategoryName("Hogar");
+        publishServiceToKafka(hogar);
+        waitForKafkaProcessing();
+
+        List<Map<String, Object>> batch = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            batch.add(batchItem(wellRated, 5.0, "Excelente " + i));
+        }
+        batch.add(batchItem(singleRating, 5.0, "Excelente, la única calificación"));
+        batch.add(batchItem(otherCategory, 4.0, "Bueno"));
+
+        webTestClient.post()
+                .uri("/api/services/comments:batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(batch)
+                .exchange()
+                .expectStatus().isOk();
+
+        List<TopServiceDTO> top = webTestClient.get()
+                .uri("/api/services/top?k=2")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(TopServiceDTO.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertNotNull(top);
+        assertEquals(2, top.size());
+        // Cinco calificaciones de 5 pesan más que una sola
+        assertEquals(wellRated.toString(), top.get(0).getServiceId());
+        assertEquals(5, top.get(0).getCount());
+
+        List<TopServiceDTO> byCategory = webTestClient.get()
+                .uri("/api/services/top?k=10&category=hogar")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(TopServiceDTO.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertNotNull(byCategory);
+        assertEquals(1, byCategory.size());
+        assertEquals(otherCategory.toString(), byCategory.get(0).getServiceId());
+
+        webTestClient.get()
+                .uri("/api/services/top?k=0")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    private Map<String, Object> batchItem(UUID serviceId, double rating, String content) {
+        Map<String, Object> commentData = new HashMap<>();
+        commentData.put("serviceId", serviceId.toString());
+        commentData.put("profileId", 1L);
+        commentData.put("rating", rating);
+        commentData.put("content", content);
+        return commentData;
+    }
+
     private ServiceResponseDTO createTestService(UUID id, String title, BigDecimal price) {
         ServiceResponseDTO service = new ServiceResponseDTO();
         service.setId(id);
@@ -255,4 +544,40 @@ class ServiceControllerIntegrationTest extends BaseIntegrationTest {
         kafkaTemplate.send(SERVICE_RESPONSE_TOPIC, encodedPayload);
         System.out.println("Servicio publicado en Kafka: " + service.getTitle());
     }
+
+    private Map<String, Object> commentData(UUID serviceId) {
+        return createTestData(
+                "serviceId", serviceId.toString(),
+                "profileId", 1L,
+                "rating", 4.5,
+                "content", "Comentario para un servicio que llega desde marketplace");
+    }
+
+    private Consumer<String, String> serviceRequestConsumer() {
+        Map<String, Object> props = KafkaTestUtils.consumerProps("service-request-test-" + UUID.randomUUID(),
+                "false", embeddedKafka);
+        Consumer<String, String> consumer = new DefaultKafkaConsumerFactory<>(props, new StringDeserializer(),
+                new StringDeserializer()).createConsumer();
+        embeddedKafka.consumeFromAnEmbeddedTopic(consumer, SERVICE_REQUEST_TOPIC);
+        return consumer;
+    }
+
+    /**
+     * Hace de marketplace: espera la siguiente solicitud de servicio y publica
+     * la respuesta que construye replyFor
+     */
+    private CompletableFuture<ServiceRequestDTO> replyToNextServiceRequest(Consumer<String, String> serviceRequests,
+            Function<ServiceRequestDTO, ServiceResponseDTO> replyFor) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                ConsumerRecord<String, String> record = KafkaTestUtils.getSingleRecord(serviceRequests,
+                        SERVICE_REQUEST_TOPIC, Duration.ofSeconds(20));
+                ServiceRequestDTO request = objectMapper.readValue(record.value(), ServiceRequestDTO.class);
+                publishServiceToKafka(replyFor.apply(request));
+                return request;
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
 }
@@ -0,0 +1,122 @@
+package com.ms_example.comentarios.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import org.apache.lucene.index.IndexWriter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.Pageable;
+
+import com.ms_example.comentarios.model.Comment;
+import com.ms_example.comentarios.repository.CommentRepository;
+
+class CommentSearchIndexTest {
+
+    private final CommentRepository commentRepository = mock(CommentRepository.class);
+    private final Comment first = comment(1L, "La instalación quedó impecable");
+    private final Comment second = comment(2L, "Llegó tarde pero resolvió la pérdida");
+
+    @TempDir
+    Path indexDir;
+
+    @BeforeEach
+    void setUp() {
+        stubComments(first, second);
+    }
+
+    @Test
+    void testCleanShutdownReusesIndex() throws IOException {
+        CommentSearchIndex index = open(indexDir);
+        index.close();
+
+        CommentSearchIndex reopened = open(indexDir);
+        try {
+            assertEquals(List.of(1L), reopened.search("impecable", null, 10));
+            verify(commentRepository, times(1)).findByIdGreaterThanOrderByIdAsc(anyLong(), any(Pageable.class));
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    void testCrashRebuildsIndexWithSameCount(@TempDir Path crashDir) throws IOException {
+        CommentSearchIndex index = open(indexDir);
+        Comment edited = comment(1L, "La instalación tuvo una fuga");
+        index.index(edited);
+        // Caída antes del commit periódico: en disco queda el último commit
+        copyCommittedFiles(indexDir, crashDir);
+        index.close();
+        stubComments(edited, second);
+
+        CommentSearchIndex recovered = open(crashDir);
+        try {
+            assertEquals(List.of(1L), recovered.search("fuga", null, 10));
+            assertEquals(List.of(), recovered.search("impecable", null, 10));
+            verify(commentRepository, times(2)).findByIdGreaterThanOrderByIdAsc(anyLong(), any(Pageable.class));
+        } finally {
+            recovered.close();
+        }
+    }
+
+    @Test
+    void testNewerCommentsInDatabaseRebuildIndex() throws IOException {
+        CommentSearchIndex index = open(indexDir);
+        index.close();
+        // Otro proceso borró un comentario y agregó otro con la misma cantidad
+        Comment third = comment(3L, "Presupuesto claro y trabajo prolijo");
+        stubComments(first, third);
+
+        CommentSearchIndex reopened = open(indexDir);
+        try {
+            assertEquals(List.of(3L), reopened.search("prolijo", null, 10));
+            assertEquals(List.of(), reopened.search("pérdida", null, 10));
+        } finally {
+            reopened.close();
+        }
+    }
+
+    private CommentSearchIndex open(Path path) throws IOException {
+        CommentSearchIndex index = new CommentSearchIndex(commentRepository, path.toString());
+        index.reconcile();
+        return index;
+    }
+
+    private void stubComments(Comment... comments) {
+        when(commentRepository.count()).thenReturn((long) comments.length);
+        when(commentRepository.findMaxId()).thenReturn(comments[comments.length - 1].getId());
+        when(commentRepository.findByIdGreaterThanOrderByIdAsc(anyLong(), any(Pageable.class)))
+                .thenReturn(List.of(comments));
+    }
+
+    private static void copyCommittedFiles(Path from, Path to) throws IOException {
+        try (Stream<Path> files = Files.list(from)) {
+            for (Path file : files.toList()) {
+                if (!file.getFileName().toString().equals(IndexWriter.WRITE_LOCK_NAME)) {
+                    Files.copy(file, to.resolve(file.getFileName()));
+                }
+            }
+        }
+    }
+
+    private static Comment comment(Long id, String content) {
+        Comment comment = new Comment();
+        comment.setId(id);
+        comment.setServiceUuid(UUID.fromString("12121212-1212-1212-1212-121212121212"));
+        comment.setContent(content);
+        return comment;
+    }
+}
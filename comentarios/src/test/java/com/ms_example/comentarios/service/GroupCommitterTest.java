@@ -0,0 +1,147 @@
+package com.ms_example.comentarios.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class GroupCommitterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private GroupCommitter<String, String> groupCommitter;
+
+    @AfterEach
+    void tearDown() {
+        if (groupCommitter != null) {
+            groupCommitter.close();
+        }
+    }
+
+    @Test
+    void testItemsAreWrittenInBatches() throws Exception {
+        List<Integer> batchSizes = new ArrayList<>();
+        groupCommitter = groupCommitter(items -> {
+            batchSizes.add(items.size());
+            return items.stream().map(String::toUpperCase).toList();
+        });
+
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            results.add(groupCommitter.submit("item-" + i));
+        }
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals("ITEM-" + i, results.get(i).get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(10, batchSizes.stream().mapToInt(Integer::intValue).sum());
+    }
+
+    @Test
+    void testFailedBatchIsRetriedItemByItem() throws Exception {
+        groupCommitter = groupCommitter(items -> {
+            if (items.contains("invalido")) {
+                throw new IllegalArgumentException("elemento inválido");
+            }
+            return items;
+        });
+
+        CompletableFuture<String> first = groupCommitter.submit("a");
+        CompletableFuture<String> invalid = groupCommitter.submit("invalido");
+        CompletableFuture<String> last = groupCommitter.submit("b");
+
+        assertEquals("a", first.get(5, TimeUnit.SECONDS));
+        assertEquals("b", last.get(5, TimeUnit.SECONDS));
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> invalid.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalArgumentException.class, failure.getCause());
+    }
+
+    @Test
+    void testErrorFailsBatchWithoutStoppingWorker() throws Exception {
+        groupCommitter = groupCommitter(items -> {
+            if (items.contains("error")) {
+                throw new StackOverflowError();
+            }
+            return items;
+        });
+
+        CompletableFuture<String> failed = groupCommitter.submit("error");
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> failed.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(StackOverflowError.class, failure.getCause());
+
+        // El hilo sigue escribiendo los lotes siguientes
+        CompletableFuture<String> next = groupCommitter.submit("ok");
+        assertNotNull(next);
+        assertEquals("ok", next.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testTimedOutItemIsNeverWritten() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> written = new CopyOnWriteArrayList<>();
+        groupCommitter = groupCommitter(items -> {
+            if (items.contains("lento")) {
+                writing.countDown();
+                await(release);
+            }
+            written.addAll(items);
+            return items;
+        });
+
+        // El escritor queda detenido con el primer lote
+        CompletableFuture<String> stalled = groupCommitter.submit("lento");
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> timedOut = groupCommitter.submit("vencido");
+        assertThrows(TimeoutException.class, () -> timedOut.get(100, TimeUnit.MILLISECONDS));
+
+        // Aún en cola: se descarta. El que ya se está escribiendo no se puede cancelar
+        assertTrue(timedOut.cancel(false));
+        assertFalse(stalled.cancel(false));
+        release.countDown();
+
+        assertEquals("lento", stalled.get(5, TimeUnit.SECONDS));
+        assertEquals("siguiente", groupCommitter.submit("siguiente").get(5, TimeUnit.SECONDS));
+        assertTrue(timedOut.isCancelled());
+        assertEquals(List.of("lento", "siguiente"), written);
+        assertEquals(1, meterRegistry.get("comments.group-commit.cancelled").counter().count());
+    }
+
+    @Test
+    void testClosedCommitterRejectsItems() {
+        groupCommitter = groupCommitter(items -> items);
+        groupCommitter.close();
+
+        assertNull(groupCommitter.submit("tarde"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private GroupCommitter<String, String> groupCommitter(Function<List<String>, List<String>> writer) {
+        return new GroupCommitter<>("test-group-commit", 4, Duration.ofMillis(20), 100, writer, meterRegistry);
+    }
+}
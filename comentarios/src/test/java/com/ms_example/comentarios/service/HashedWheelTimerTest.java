@@ -0,0 +1,98 @@
+package com.ms_example.comentarios.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class HashedWheelTimerTest {
+
+    private HashedWheelTimer timer;
+
+    @AfterEach
+    void tearDown() {
+        if (timer != null) {
+            timer.close();
+        }
+    }
+
+    @Test
+    void testScheduledTaskRunsAfterDelay() throws Exception {
+        timer = new HashedWheelTimer("test-timer", Duration.ofMillis(10), 8);
+        CountDownLatch ran = new CountDownLatch(1);
+        long start = System.nanoTime();
+
+        timer.schedule(ran::countDown, Duration.ofMillis(100));
+
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(100));
+    }
+
+    @Test
+    void testDelayLongerThanOneRevolution() throws Exception {
+        // 4 casilleros de 10 ms: la rueda da varias vueltas antes del vencimiento
+        timer = new HashedWheelTimer("test-timer", Duration.ofMillis(10), 4);
+        CountDownLatch ran = new CountDownLatch(1);
+        long start = System.nanoTime();
+
+        timer.schedule(ran::countDown, Duration.ofMillis(150));
+
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(150));
+    }
+
+    @Test
+    void testCancelledTaskDoesNotRun() throws Exception {
+        timer = new HashedWheelTimer("test-timer", Duration.ofMillis(10), 8);
+        AtomicInteger cancelledRuns = new AtomicInteger();
+        CountDownLatch later = new CountDownLatch(1);
+
+        HashedWheelTimer.Timeout beforeTransfer = timer.schedule(cancelledRuns::incrementAndGet, Duration.ofMillis(50));
+        beforeTransfer.cancel();
+        HashedWheelTimer.Timeout inWheel = timer.schedule(cancelledRuns::incrementAndGet, Duration.ofMillis(100));
+        Thread.sleep(30);
+        inWheel.cancel();
+        timer.schedule(later::countDown, Duration.ofMillis(200));
+
+        assertTrue(later.await(5, TimeUnit.SECONDS));
+        assertEquals(0, cancelledRuns.get());
+    }
+
+    @Test
+    void testFailingTaskDoesNotStopTimer() throws Exception {
+        timer = new HashedWheelTimer("test-timer", Duration.ofMillis(10), 8);
+        CountDownLatch ran = new CountDownLatch(1);
+
+        timer.schedule(() -> {
+            throw new IllegalStateException("fallo de prueba");
+        }, Duration.ofMillis(20));
+        timer.schedule(ran::countDown, Duration.ofMillis(60));
+
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testClosedTimerStopsRunningTasks() throws Exception {
+        timer = new HashedWheelTimer("test-timer", Duration.ofMillis(10), 8);
+        CountDownLatch ran = new CountDownLatch(1);
+
+        timer.schedule(ran::countDown, Duration.ofMillis(200));
+        timer.close();
+
+        assertFalse(ran.await(400, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void testWheelSizeMustBePowerOfTwo() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new HashedWheelTimer("test-timer", Duration.ofMillis(10), 6));
+    }
+}
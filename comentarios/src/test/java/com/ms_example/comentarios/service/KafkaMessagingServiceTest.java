@@ -0,0 +1,199 @@
+package com.ms_example.comentarios.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.cloud.stream.function.StreamBridge;
+
+import com.ms_example.comentarios.dto.ServiceRequestDTO;
+import com.ms_example.comentarios.dto.ServiceResponseDTO;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class KafkaMessagingServiceTest {
+
+    private final StreamBridge streamBridge = mock(StreamBridge.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private KafkaMessagingService messagingService;
+
+    @BeforeEach
+    void setUp() {
+        when(streamBridge.send(anyString(), any())).thenReturn(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (messagingService != null) {
+            messagingService.shutdown();
+        }
+    }
+
+    @Test
+    void testConcurrentRequestsForSameServiceShareOneRequest() throws Exception {
+        messagingService = messagingService(Duration.ofSeconds(30), 100);
+        UUID serviceId = UUID.randomUUID();
+
+        CompletableFuture<ServiceResponseDTO> first = messagingService.requestServiceInfo(serviceId);
+        CompletableFuture<ServiceResponseDTO> second = messagingService.requestServiceInfo(serviceId);
+        CompletableFuture<ServiceResponseDTO> third = messagingService.requestServiceInfo(serviceId);
+
+        ServiceRequestDTO request = sentRequest();
+        assertEquals(serviceId, request.getServiceId());
+        assertEquals(1, messagingService.getPendingCount());
+        assertFalse(first.isDone());
+
+        // Cancelar la copia de un llamador no afecta a los demás
+        second.cancel(false);
+        ServiceResponseDTO response = response(request.getRequestId(), serviceId);
+        messagingService.handleServiceResponse(response);
+
+        assertSame(response, first.get(1, TimeUnit.SECONDS));
+        assertSame(response, third.get(1, TimeUnit.SECONDS));
+        assertEquals(0, messagingService.getPendingCount());
+        assertEquals(2, meterRegistry.get("comments.service.requests.coalesced").counter().count());
+
+        // Completada la solicitud, la siguiente consulta envía una nueva
+        messagingService.requestServiceInfo(serviceId);
+        verify(streamBridge, times(2)).send(eq(KafkaMessagingService.SERVICE_REQUEST_BINDING), any());
+    }
+
+    @Test
+    void testUnansweredRequestExpires() throws Exception {
+        messagingService = messagingService(Duration.ofMillis(200), 100);
+        UUID serviceId = UUID.randomUUID();
+
+        CompletableFuture<ServiceResponseDTO> first = messagingService.requestServiceInfo(serviceId);
+        CompletableFuture<ServiceResponseDTO> second = messagingService.requestServiceInfo(serviceId);
+
+        ServiceResponseDTO expired = first.get(5, TimeUnit.SECONDS);
+        assertEquals(KafkaMessagingService.TIMEOUT_MESSAGE, expired.getErrorMessage());
+        assertEquals(serviceId, expired.getServiceId());
+        assertSame(expired, second.get(1, TimeUnit.SECONDS));
+        assertEquals(0, messagingService.getPendingCount());
+        assertEquals(1, meterRegistry.get("comments.service.requests.latency").tag("outcome", "timeout")
+                .timer().count());
+
+        // Una respuesta tardía ya no tiene a quién completar
+        messagingService.handleServiceResponse(response(sentRequest().getRequestId(), serviceId));
+        assertEquals(0, messagingService.getPendingCount());
+        assertEquals(0, meterRegistry.get("comments.service.requests.latency").tag("outcome", "response")
+                .timer().count());
+    }
+
+    @Test
+    void testRequestsOverMaxPendingAreRejected() throws Exception {
+        messagingService = messagingService(Duration.ofSeconds(30), 2);
+
+        messagingService.requestServiceInfo(UUID.randomUUID());
+        messagingService.requestServiceInfo(UUID.randomUUID());
+        ServiceResponseDTO rejected = messagingService.requestServiceInfo(UUID.randomUUID()).get();
+
+        assertEquals(KafkaMessagingService.REJECTED_MESSAGE, rejected.getErrorMessage());
+        assertNull(rejected.getRequestId());
+        assertEquals(2, messagingService.getPendingCount());
+        assertEquals(1, meterRegistry.get("comments.service.requests.rejected").counter().count());
+        verify(streamBridge, times(2)).send(eq(KafkaMessagingService.SERVICE_REQUEST_BINDING), any());
+
+        // Al completarse una solicitud se libera su cupo
+        ServiceRequestDTO first = sentRequests().get(0);
+        messagingService.handleServiceResponse(response(first.getRequestId(), first.getServiceId()));
+        assertEquals(1, messagingService.getPendingCount());
+        ServiceResponseDTO accepted = messagingService.requestServiceInfo(UUID.randomUUID()).getNow(null);
+        assertNull(accepted);
+        assertEquals(2, messagingService.getPendingCount());
+    }
+
+    @Test
+    void testMaxPendingHoldsUnderConcurrentRequests() throws Exception {
+        int maxPending = 10;
+        int callers = 64;
+        messagingService = messagingService(Duration.ofSeconds(30), maxPending);
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<CompletableFuture<ServiceResponseDTO>>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return messagingService.requestServiceInfo(UUID.randomUUID());
+                }));
+            }
+            start.countDown();
+
+            int accepted = 0;
+            for (Future<CompletableFuture<ServiceResponseDTO>> result : results) {
+                if (!result.get(5, TimeUnit.SECONDS).isDone()) {
+                    accepted++;
+                }
+            }
+            assertEquals(maxPending, accepted);
+            assertEquals(maxPending, messagingService.getPendingCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testFailedSendReleasesSlot() throws Exception {
+        when(streamBridge.send(anyString(), any())).thenReturn(false);
+        messagingService = messagingService(Duration.ofSeconds(30), 1);
+
+        ServiceResponseDTO failed = messagingService.requestServiceInfo(UUID.randomUUID()).get(1, TimeUnit.SECONDS);
+
+        assertEquals(KafkaMessagingService.SEND_FAILED_MESSAGE, failed.getErrorMessage());
+        assertEquals(0, messagingService.getPendingCount());
+        assertTrue(messagingService.requestServiceInfo(UUID.randomUUID()).isDone());
+        verify(streamBridge, times(2)).send(eq(KafkaMessagingService.SERVICE_REQUEST_BINDING), any());
+    }
+
+    private KafkaMessagingService messagingService(Duration timeout, int maxPending) {
+        return new KafkaMessagingService(streamBridge, meterRegistry, "test", timeout, maxPending,
+                Duration.ofMillis(10));
+    }
+
+    private ServiceRequestDTO sentRequest() {
+        List<ServiceRequestDTO> requests = sentRequests();
+        return requests.get(requests.size() - 1);
+    }
+
+    private List<ServiceRequestDTO> sentRequests() {
+        ArgumentCaptor<Object> captor = ArgumentCaptor.forClass(Object.class);
+        verify(streamBridge, atLeastOnce())
+                .send(eq(KafkaMessagingService.SERVICE_REQUEST_BINDING), captor.capture());
+        return captor.getAllValues().stream().map(ServiceRequestDTO.class::cast).toList();
+    }
+
+    private static ServiceResponseDTO response(String requestId, UUID serviceId) {
+        ServiceResponseDTO response = new ServiceResponseDTO();
+        response.setRequestId(requestId);
+        response.setServiceId(serviceId.toString());
+        response.setTitle("Plomería");
+        return response;
+    }
+}
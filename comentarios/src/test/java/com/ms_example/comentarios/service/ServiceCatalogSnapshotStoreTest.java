@@ -0,0 +1,149 @@
+package com.ms_example.comentarios.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ms_example.comentarios.dto.ServiceResponseDTO;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ServiceCatalogSnapshotStoreTest {
+
+    private static final Duration TTL = Duration.ofHours(1);
+    private static final String TOPIC = "service-response-topic";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testSaveAndLoadRestoresServicesAndOffsets() {
+        ServiceCatalog catalog = catalog();
+        ServiceResponseDTO service = service("Plomería");
+        TopicPartition partition0 = new TopicPartition(TOPIC, 0);
+        TopicPartition partition1 = new TopicPartition(TOPIC, 1);
+        catalog.applyAll(List.of(service), Map.of(partition0, 41L, partition1, 7L));
+        store(catalog).save();
+        assertTrue(Files.isRegularFile(snapshotPath()));
+
+        ServiceCatalog restored = catalog();
+        store(restored).load();
+
+        ServiceResponseDTO loaded = restored.get(service.getServiceId());
+        assertNotNull(loaded);
+        assertEquals("Plomería", loaded.getTitle());
+        assertEquals(new BigDecimal("25.50"), loaded.getPrice());
+        assertEquals(41L, restored.lastOffset(partition0));
+        assertEquals(7L, restored.lastOffset(partition1));
+    }
+
+    @Test
+    void testRestoredOffsetsAreUsedForSeeking() {
+        ServiceCatalog catalog = catalog();
+        TopicPartition partition0 = new TopicPartition(TOPIC, 0);
+        TopicPartition partition1 = new TopicPartition(TOPIC, 1);
+        catalog.applyAll(List.of(service("Pintura")), Map.of(partition0, 41L));
+        store(catalog).save();
+
+        ServiceCatalog restored = catalog();
+        store(restored).load();
+        ServiceCatalogRebalanceListener listener = new ServiceCatalogRebalanceListener(restored);
+
+        Consumer<?, ?> consumer = mock(Consumer.class);
+        listener.onPartitionsAssigned(ServiceCatalogRebalanceListener.SERVICE_RESPONSE_BINDING, consumer,
+                List.of(partition0, partition1), true);
+
+        verify(consumer).seek(partition0, 42L);
+        // Sin offset en el snapshot la partición sigue la política del grupo
+        verify(consumer, never()).seek(partition1, 0L);
+
+        Consumer<?, ?> reassigned = mock(Consumer.class);
+        listener.onPartitionsAssigned(ServiceCatalogRebalanceListener.SERVICE_RESPONSE_BINDING, reassigned,
+                List.of(partition0), false);
+        verify(reassigned, never()).seek(any(TopicPartition.class), anyLong());
+    }
+
+    @Test
+    void testRestoreKeepsRemainingTimeToLive() {
+        ServiceCatalog catalog = catalog();
+        ServiceResponseDTO fresh = service("Jardinería");
+        ServiceResponseDTO expired = service("Mudanzas");
+        Instant writtenAt = Instant.now().minus(Duration.ofMinutes(45));
+
+        int restored = catalog.restore(List.of(
+                new ServiceCatalog.StoredService(fresh, writtenAt),
+                new ServiceCatalog.StoredService(expired, Instant.now().minus(Duration.ofHours(2)))),
+                Map.of());
+
+        assertEquals(1, restored);
+        assertNull(catalog.get(expired.getServiceId()));
+        assertFalse(catalog.contains(expired.getServiceId()));
+        assertWrittenAt(writtenAt, catalog.writtenAt(fresh.getServiceId()));
+
+        // Guardar y volver a cargar no reinicia el tiempo de vida
+        store(catalog).save();
+        ServiceCatalog reloaded = catalog();
+        store(reloaded).load();
+        assertWrittenAt(writtenAt, reloaded.writtenAt(fresh.getServiceId()));
+    }
+
+    @Test
+    void testDamagedSnapshotIsIgnored() throws Exception {
+        Files.write(snapshotPath(), new byte[] { 1, 2, 3 });
+
+        ServiceCatalog catalog = catalog();
+        store(catalog).load();
+
+        assertEquals(0, catalog.size());
+        assertNull(catalog.lastOffset(new TopicPartition(TOPIC, 0)));
+    }
+
+    private static void assertWrittenAt(Instant expected, Instant actual) {
+        assertNotNull(actual);
+        assertTrue(Duration.between(expected, actual).abs().compareTo(Duration.ofSeconds(5)) < 0,
+                "Hora de escritura " + actual + ", se esperaba " + expected);
+    }
+
+    private static ServiceCatalog catalog() {
+        return new ServiceCatalog(1000, TTL, new SimpleMeterRegistry());
+    }
+
+    private ServiceCatalogSnapshotStore store(ServiceCatalog catalog) {
+        return new ServiceCatalogSnapshotStore(catalog, new ObjectMapper(), true, snapshotPath().toString());
+    }
+
+    private Path snapshotPath() {
+        return directory.resolve("service-catalog.snapshot");
+    }
+
+    private static ServiceResponseDTO service(String title) {
+        ServiceResponseDTO service = new ServiceResponseDTO();
+        service.setServiceId(UUID.randomUUID().toString());
+        service.setTitle(title);
+        service.setPrice(new BigDecimal("25.50"));
+        service.setEventType("CREATED");
+        return service;
+    }
+}
@@ -0,0 +1,144 @@
+package com.ms_example.comentarios.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.cloud.stream.function.StreamBridge;
+
+import com.ms_example.comentarios.dto.ServiceRequestDTO;
+import com.ms_example.comentarios.dto.ServiceResponseDTO;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ServiceLookupServiceTest {
+
+    private final StreamBridge streamBridge = mock(StreamBridge.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ServiceCatalog serviceCatalog = new ServiceCatalog(1000, Duration.ofHours(1), meterRegistry);
+    private KafkaMessagingService messagingService;
+    private ServiceLookupService lookupService;
+
+    @BeforeEach
+    void setUp() {
+        when(streamBridge.send(anyString(), any())).thenReturn(true);
+        messagingService = new KafkaMessagingService(streamBridge, meterRegistry, "test", Duration.ofMillis(200),
+                100, Duration.ofMillis(10));
+        lookupService = new ServiceLookupService(serviceCatalog, messagingService, Duration.ofSeconds(30), 1000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        messagingService.shutdown();
+    }
+
+    @Test
+    void testServiceInCatalogIsReturnedWithoutRequest() {
+        ServiceResponseDTO service = service(UUID.randomUUID());
+        serviceCatalog.apply(service);
+
+        CompletableFuture<ServiceResponseDTO> found = lookupService.findService(service.getServiceId());
+
+        assertTrue(found.isDone());
+        assertSame(service, found.join());
+        verify(streamBridge, never()).send(anyString(), any());
+    }
+
+    @Test
+    void testCatalogMissReadsThroughToMarketplace() throws Exception {
+        UUID serviceId = UUID.randomUUID();
+
+        CompletableFuture<ServiceResponseDTO> found = lookupService.findService(serviceId);
+
+        assertFalse(found.isDone());
+        ServiceRequestDTO request = lastRequest();
+        assertEquals(serviceId, request.getServiceId());
+        ServiceResponseDTO reply = service(serviceId);
+        reply.setRequestId(request.getRequestId());
+        messagingService.handleServiceResponse(reply);
+
+        assertSame(reply, found.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testNotFoundReplyIsCached() throws Exception {
+        UUID serviceId = UUID.randomUUID();
+
+        CompletableFuture<ServiceResponseDTO> found = lookupService.findService(serviceId);
+        ServiceResponseDTO reply = new ServiceResponseDTO();
+        reply.setRequestId(lastRequest().getRequestId());
+        reply.setServiceId(serviceId.toString());
+        reply.setErrorMessage("Servicio no encontrado");
+        messagingService.handleServiceResponse(reply);
+        assertNull(found.get(1, TimeUnit.SECONDS));
+
+        CompletableFuture<ServiceResponseDTO> again = lookupService.findService(serviceId);
+
+        assertTrue(again.isDone());
+        assertNull(again.join());
+        verify(streamBridge, times(1)).send(anyString(), any());
+    }
+
+    @Test
+    void testTimeoutIsNotCached() throws Exception {
+        UUID serviceId = UUID.randomUUID();
+
+        assertNull(lookupService.findService(serviceId).get(5, TimeUnit.SECONDS));
+
+        // Marketplace se recuperó: la siguiente consulta vuelve a preguntar
+        CompletableFuture<ServiceResponseDTO> retried = lookupService.findService(serviceId);
+        assertFalse(retried.isDone());
+        ServiceResponseDTO reply = service(serviceId);
+        reply.setRequestId(lastRequest().getRequestId());
+        messagingService.handleServiceResponse(reply);
+
+        assertSame(reply, retried.get(1, TimeUnit.SECONDS));
+        verify(streamBridge, times(2)).send(anyString(), any());
+    }
+
+    @Test
+    void testSendFailureIsNotCached() throws Exception {
+        when(streamBridge.send(anyString(), any())).thenReturn(false);
+        UUID serviceId = UUID.randomUUID();
+
+        assertNull(lookupService.findService(serviceId).get(1, TimeUnit.SECONDS));
+        assertNull(lookupService.findService(serviceId).get(1, TimeUnit.SECONDS));
+
+        verify(streamBridge, times(2)).send(anyString(), any());
+    }
+
+    private ServiceRequestDTO lastRequest() {
+        ArgumentCaptor<Object> captor = ArgumentCaptor.forClass(Object.class);
+        verify(streamBridge, atLeastOnce()).send(anyString(), captor.capture());
+        List<Object> requests = captor.getAllValues();
+        return (ServiceRequestDTO) requests.get(requests.size() - 1);
+    }
+
+    private static ServiceResponseDTO service(UUID serviceId) {
+        ServiceResponseDTO service = new ServiceResponseDTO();
+        service.setServiceId(serviceId.toString());
+        service.setTitle("Plomería");
+        service.setIsActive(true);
+        return service;
+    }
+}
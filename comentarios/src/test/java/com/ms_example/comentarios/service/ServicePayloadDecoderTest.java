@@ -0,0 +1,137 @@
+package com.ms_example.comentarios.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+
+class ServicePayloadDecoderTest {
+
+    private static final String JSON = "{\"serviceId\":\"6f1c2a3e-0d4b-4c8e-9a7f-1b2c3d4e5f60\",\"title\":\"Plomería\"}";
+
+    @Test
+    void testRawJsonIsReturnedWithoutCopy() {
+        byte[] payload = bytes(JSON);
+
+        ServicePayloadDecoder.JsonView view = ServicePayloadDecoder.locateJson(payload);
+
+        assertNotNull(view);
+        assertSame(payload, view.bytes());
+        assertFalse(view.smile());
+        assertEquals(JSON, text(view));
+    }
+
+    @Test
+    void testRawJsonWithSurroundingWhitespace() {
+        ServicePayloadDecoder.JsonView view = ServicePayloadDecoder.locateJson(bytes(" \r\n\t" + JSON + "\n  "));
+
+        assertNotNull(view);
+        assertEquals(JSON, text(view));
+    }
+
+    @Test
+    void testPaddedBase64() {
+        // Tres longitudes seguidas: sin relleno, con uno y con dos
+        for (String json : new String[] { JSON, JSON + " ", JSON + "  " }) {
+            String encoded = Base64.getEncoder().encodeToString(bytes(json));
+
+            assertEquals(json, text(ServicePayloadDecoder.locateJson(bytes(encoded))));
+        }
+    }
+
+    @Test
+    void testUnpaddedBase64() {
+        for (String json : new String[] { JSON, JSON + " ", JSON + "  " }) {
+            String encoded = Base64.getEncoder().withoutPadding().encodeToString(bytes(json));
+
+            assertEquals(json.strip(), text(ServicePayloadDecoder.locateJson(bytes(encoded))).strip());
+        }
+    }
+
+    @Test
+    void testQuotedBase64() {
+        String encoded = "\"" + Base64.getEncoder().encodeToString(bytes(JSON)) + "\"";
+
+        assertEquals(JSON, text(ServicePayloadDecoder.locateJson(bytes(encoded))));
+    }
+
+    @Test
+    void testBase64WithLineBreaks() {
+        String json = "{\"title\":\"" + "x".repeat(200) + "\"}";
+        String mime = Base64.getMimeEncoder().encodeToString(bytes(json));
+        assertTrue(mime.contains("\r\n"));
+
+        assertEquals(json, text(ServicePayloadDecoder.locateJson(bytes(mime))));
+        // Un string JSON con el Base64 MIME lleva los saltos escapados
+        String escaped = "\"" + mime.replace("\r", "\\r").replace("\n", "\\n") + "\"";
+        assertEquals(json, text(ServicePayloadDecoder.locateJson(bytes(escaped))));
+    }
+
+    @Test
+    void testBase64Smile() throws Exception {
+        byte[] smile = new SmileMapper().writeValueAsBytes(new ObjectMapper().readTree(JSON));
+        byte[] encoded = Base64.getEncoder().encode(smile);
+
+        ServicePayloadDecoder.JsonView view = ServicePayloadDecoder.locateJson(encoded);
+
+        assertNotNull(view);
+        assertTrue(view.smile());
+        assertEquals(smile.length, view.length());
+    }
+
+    @Test
+    void testMalformedInputReturnsNull() {
+        assertNull(ServicePayloadDecoder.locateJson(new byte[0]));
+        assertNull(ServicePayloadDecoder.locateJson(bytes("   ")));
+        assertNull(ServicePayloadDecoder.locateJson(bytes("not json")));
+        assertNull(ServicePayloadDecoder.locateJson(bytes("[1,2,3]")));
+        // Caracteres fuera del alfabeto, un carácter suelto al final y relleno de más
+        assertNull(ServicePayloadDecoder.locateJson(bytes("eyJh*GkiOjF9")));
+        assertNull(ServicePayloadDecoder.locateJson(bytes("eyJhIjoxfQABC")));
+        assertNull(ServicePayloadDecoder.locateJson(bytes("eyJhIjoxfQ===")));
+        assertNull(ServicePayloadDecoder.locateJson(bytes("eyJh=IjoxfQ==")));
+        assertNull(ServicePayloadDecoder.locateJson(new byte[] { (byte) 0xC3, (byte) 0xA9, 'A', 'A' }));
+        // Base64 válido que no contiene JSON
+        assertNull(ServicePayloadDecoder.locateJson(Base64.getEncoder().encode(bytes("hola mundo"))));
+    }
+
+    @Test
+    void testLargePayloadDoesNotRetainBuffer() {
+        String large = "{\"description\":\"" + "a".repeat(2 * 1024 * 1024) + "\"}";
+        ServicePayloadDecoder.JsonView largeView = ServicePayloadDecoder.locateJson(
+                Base64.getEncoder().encode(bytes(large)));
+
+        assertNotNull(largeView);
+        assertEquals(large.length(), largeView.length());
+        assertEquals(large, text(largeView));
+
+        // El siguiente mensaje del mismo hilo usa un buffer acotado, no el del mensaje grande
+        ServicePayloadDecoder.JsonView smallView = ServicePayloadDecoder.locateJson(
+                Base64.getEncoder().encode(bytes(JSON)));
+
+        assertNotNull(smallView);
+        assertEquals(JSON, text(smallView));
+        assertNotSame(largeView.bytes(), smallView.bytes());
+        assertTrue(smallView.bytes().length <= 1024 * 1024);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String text(ServicePayloadDecoder.JsonView view) {
+        assertNotNull(view);
+        return new String(view.bytes(), view.offset(), view.length(), StandardCharsets.UTF_8);
+    }
+}